@@ -0,0 +1,72 @@
+package com.iot.xust.redistest.benchmark;
+
+import com.iot.xust.redistest.codec.ValueCodec;
+import com.iot.xust.redistest.config.RedisConfig;
+import com.iot.xust.redistest.util.RedisUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 21:30 2026/10/18  2026
+ * @Description: 基准测试使用的Spring上下文：启动{@link RespServer}，按RedisConfig的方式装配连接工厂、编解码和redisTemplate，
+ * 再注册被测的RedisUtils。不加载application.yml，编解码、压缩和命令统计由参数决定
+ */
+public final class BenchmarkContext implements Closeable {
+
+    private final RespServer server;
+
+    private final AnnotationConfigApplicationContext context;
+
+    /**
+     * @param codec       binary 或 json
+     * @param compression 是否对超过1024字节的值做lz4压缩
+     * @param metrics     是否经过RedisCommandMetrics统计每条命令
+     * @throws IOException
+     */
+    public BenchmarkContext(String codec, boolean compression, boolean metrics) throws IOException {
+        this.server = new RespServer();
+        this.context = new AnnotationConfigApplicationContext();
+        RedisConfig config = new RedisConfig();
+        if (metrics) {
+            context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        }
+        context.registerBean(LettuceConnectionFactory.class,
+                () -> new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", server.getPort())));
+        context.registerBean(ValueCodec.class, () -> config.valueCodec(codec, new String[0], compression, "lz4", 1024));
+        context.registerBean("redisTemplate", RedisTemplate.class,
+                () -> config.redisTemplate(context.getBean(RedisConnectionFactory.class), context.getBean(ValueCodec.class),
+                        context.getBeanProvider(MeterRegistry.class), metrics, true, 100));
+        context.registerBean(RedisUtils.class);
+        context.refresh();
+    }
+
+    public RedisUtils redisUtils() {
+        return context.getBean(RedisUtils.class);
+    }
+
+    public ValueCodec valueCodec() {
+        return context.getBean(ValueCodec.class);
+    }
+
+    /**
+     * 清空替身服务端中的全部数据
+     */
+    public void flushAll() {
+        server.flushAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        server.close();
+    }
+}
@@ -0,0 +1,35 @@
+package com.iot.xust.redistest.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 21:55 2026/10/18  2026
+ * @Description: 依次用1、4、16个线程运行基准测试，每种线程数的结果写入 jmh-threads-N.json。
+ * 参数与JMH命令行相同，例如 -p operation=string.get,hash.hGet -wi 1 -i 3，未指定时运行全部基准测试
+ */
+public class BenchmarkRunner {
+
+    private static final int[] THREADS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        for (int threads : THREADS) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-threads-" + threads + ".json");
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include("com\\.iot\\.xust\\.redistest\\.benchmark\\..*");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.iot.xust.redistest.benchmark;
+
+import com.iot.xust.redistest.util.RedisBatch;
+import com.iot.xust.redistest.util.RedisUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 21:40 2026/10/18  2026
+ * @Description: RedisUtils各facade方法的吞吐量和耗时分布。
+ * single每次调用发出一条命令并等待回复；batched把{@link #BATCH_SIZE}条同样的命令放进一次pipelined，结果按单条命令折算。
+ * 每轮迭代开始前清空并重新写入测试数据，写命令覆盖已有的key，列表和集合的长度在一轮内有界增长。
+ * 线程数由BenchmarkRunner或命令行的 -t 指定，SampleTime模式给出p50/p90/p99/p99.9
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class RedisUtilsBenchmark {
+
+    /**
+     * 一次pipelined中的命令数
+     */
+    public static final int BATCH_SIZE = 100;
+
+    /**
+     * string类型的key数量，必须是2的幂
+     */
+    private static final int KEYS = 1024;
+
+    /**
+     * list/hash/set/zset类型的key数量，必须是2的幂
+     */
+    private static final int CONTAINERS = 64;
+
+    /**
+     * 每个容器中的元素数量
+     */
+    private static final int ELEMENTS = 64;
+
+    @Param({
+            "exists", "expire", "ttl", "type", "del",
+            "string.set", "string.get", "string.mget", "string.mset", "string.incrBy", "string.append", "string.strlen", "string.getRange",
+            "list.lPush", "list.rPush", "list.lPop", "list.lIndex", "list.lRange", "list.llen",
+            "hash.hSet", "hash.hGet", "hash.hMGet", "hash.hGetAll", "hash.hIncrBy", "hash.hExists", "hash.hLen",
+            "set.sAdd", "set.sIsMember", "set.sMembers", "set.sCard",
+            "zset.zAdd", "zset.zRange", "zset.zRangeByScore", "zset.zRank", "zset.zCard"
+    })
+    public String operation;
+
+    @Param({"binary"})
+    public String codec;
+
+    @Param({"false"})
+    public boolean compression;
+
+    @Param({"false"})
+    public boolean metrics;
+
+    /**
+     * 写入的值的字节数
+     */
+    @Param({"64"})
+    public int valueSize;
+
+    private BenchmarkContext context;
+
+    private RedisUtils redisUtils;
+
+    private String value;
+
+    private final String[] stringKeys = new String[KEYS];
+
+    private final String[] listKeys = new String[CONTAINERS];
+
+    private final String[] hashKeys = new String[CONTAINERS];
+
+    private final String[] setKeys = new String[CONTAINERS];
+
+    private final String[] zsetKeys = new String[CONTAINERS];
+
+    private final String[] elements = new String[ELEMENTS];
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        context = new BenchmarkContext(codec, compression, metrics);
+        redisUtils = context.redisUtils();
+        char[] chars = new char[valueSize];
+        Random random = new Random(42);
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        value = new String(chars);
+        for (int i = 0; i < KEYS; i++) {
+            stringKeys[i] = "bench:string:" + i;
+        }
+        for (int i = 0; i < CONTAINERS; i++) {
+            listKeys[i] = "bench:list:" + i;
+            hashKeys[i] = "bench:hash:" + i;
+            setKeys[i] = "bench:set:" + i;
+            zsetKeys[i] = "bench:zset:" + i;
+        }
+        for (int i = 0; i < ELEMENTS; i++) {
+            elements[i] = "e" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void seed() {
+        context.flushAll();
+        Map<String, String> strings = new HashMap<>();
+        for (String key : stringKeys) {
+            strings.put(key, value);
+        }
+        redisUtils.string.mset(strings);
+        Map<String, Object> fields = new HashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (int i = 0; i < ELEMENTS; i++) {
+            fields.put(elements[i], value);
+            scores.put(elements[i], (double) i);
+        }
+        redisUtils.pipelined(batch -> {
+            for (int i = 0; i < CONTAINERS; i++) {
+                batch.list.rPush(listKeys[i], elements);
+                batch.hash.hMSet(hashKeys[i], fields);
+                batch.set.sAdd(setKeys[i], elements);
+                batch.zset.zAdd(zsetKeys[i], scores);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+    }
+
+    /**
+     * 每个线程各自轮转key，避免线程间共享计数器
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next() {
+            return next++;
+        }
+    }
+
+    @Benchmark
+    public Object single(Cursor cursor) {
+        return call(cursor.next());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Object> batched(Cursor cursor) {
+        return redisUtils.pipelined(batch -> {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                queue(batch, cursor.next());
+            }
+        });
+    }
+
+    /**
+     * 串行调用BATCH_SIZE次，与batched对照，差值即管道节省的往返开销
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sequential(Cursor cursor, Blackhole blackhole) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            blackhole.consume(call(cursor.next()));
+        }
+    }
+
+    private Object call(int n) {
+        String key = stringKeys[n & (KEYS - 1)];
+        String container = containerKey(n);
+        String element = elements[n & (ELEMENTS - 1)];
+        switch (operation) {
+            case "exists":
+                return redisUtils.exists(key);
+            case "expire":
+                return redisUtils.expire(key, 3600);
+            case "ttl":
+                return redisUtils.ttl(key);
+            case "type":
+                return redisUtils.type(key);
+            case "del":
+                return redisUtils.del(key, stringKeys[(n + 1) & (KEYS - 1)]);
+            case "string.set":
+                return redisUtils.string.set(key, value);
+            case "string.get":
+                return redisUtils.string.get(key);
+            case "string.mget":
+                return redisUtils.string.mget(keyRange(n));
+            case "string.mset":
+                return msetArgument(n);
+            case "string.incrBy":
+                return redisUtils.string.incrBy("bench:counter:" + (n & (CONTAINERS - 1)), 1);
+            case "string.append":
+                return redisUtils.string.append("bench:append:" + (n & (CONTAINERS - 1)), element);
+            case "string.strlen":
+                return redisUtils.string.strlen(key);
+            case "string.getRange":
+                return redisUtils.string.getRange(key, 0, 15);
+            case "list.lPush":
+                return redisUtils.list.lPush(container, value);
+            case "list.rPush":
+                return redisUtils.list.rPush(container, value);
+            case "list.lPop":
+                return redisUtils.list.lPop(container);
+            case "list.lIndex":
+                return redisUtils.list.lIndex(container, n & (ELEMENTS - 1));
+            case "list.lRange":
+                return redisUtils.list.lRange(container, 0, 9);
+            case "list.llen":
+                return redisUtils.list.llen(container);
+            case "hash.hSet":
+                return redisUtils.hash.hSet(container, element, value);
+            case "hash.hGet":
+                return redisUtils.hash.hGet(container, element);
+            case "hash.hMGet":
+                return redisUtils.hash.hMGet(container, fieldRange(n));
+            case "hash.hGetAll":
+                return redisUtils.hash.hGetAll(container);
+            case "hash.hIncrBy":
+                return redisUtils.hash.hIncrBy(container, "counter", 1);
+            case "hash.hExists":
+                return redisUtils.hash.hExists(container, element);
+            case "hash.hLen":
+                return redisUtils.hash.hLen(container);
+            case "set.sAdd":
+                return redisUtils.set.sAdd(container, element);
+            case "set.sIsMember":
+                return redisUtils.set.SIsMember(container, element);
+            case "set.sMembers":
+                return redisUtils.set.sMembers(container);
+            case "set.sCard":
+                return redisUtils.set.sCard(container);
+            case "zset.zAdd":
+                return redisUtils.zset.zAdd(container, Collections.singletonMap(element, (double) n));
+            case "zset.zRange":
+                return redisUtils.zset.zRange(container, 0, 9, true);
+            case "zset.zRangeByScore":
+                return redisUtils.zset.zRangeByScore(container, 10, 19, true);
+            case "zset.zRank":
+                return redisUtils.zset.zRank(container, element);
+            case "zset.zCard":
+                return redisUtils.zset.zCard(container);
+            default:
+                throw new IllegalArgumentException("未知的operation: " + operation);
+        }
+    }
+
+    private Object queue(RedisBatch batch, int n) {
+        String key = stringKeys[n & (KEYS - 1)];
+        String container = containerKey(n);
+        String element = elements[n & (ELEMENTS - 1)];
+        switch (operation) {
+            case "exists":
+                return batch.exists(key);
+            case "expire":
+                return batch.expire(key, 3600);
+            case "ttl":
+                return batch.ttl(key);
+            case "type":
+                return batch.type(key);
+            case "del":
+                return batch.del(key, stringKeys[(n + 1) & (KEYS - 1)]);
+            case "string.set":
+                return batch.string.set(key, value);
+            case "string.get":
+                return batch.string.get(key);
+            case "string.mget":
+                return batch.string.mget(keyRange(n));
+            case "string.mset":
+                return batch.string.mset(msetMap(n));
+            case "string.incrBy":
+                return batch.string.incrBy("bench:counter:" + (n & (CONTAINERS - 1)), 1);
+            case "string.append":
+                return batch.string.append("bench:append:" + (n & (CONTAINERS - 1)), element);
+            case "string.strlen":
+                return batch.string.strlen(key);
+            case "string.getRange":
+                return batch.string.getRange(key, 0, 15);
+            case "list.lPush":
+                return batch.list.lPush(container, value);
+            case "list.rPush":
+                return batch.list.rPush(container, value);
+            case "list.lPop":
+                return batch.list.lPop(container);
+            case "list.lIndex":
+                return batch.list.lIndex(container, n & (ELEMENTS - 1));
+            case "list.lRange":
+                return batch.list.lRange(container, 0, 9);
+            case "list.llen":
+                return batch.list.llen(container);
+            case "hash.hSet":
+                return batch.hash.hSet(container, element, value);
+            case "hash.hGet":
+                return batch.hash.hGet(container, element);
+            case "hash.hMGet":
+                return batch.hash.hMGet(container, fieldRange(n));
+            case "hash.hGetAll":
+                return batch.hash.hGetAll(container);
+            case "hash.hIncrBy":
+                return batch.hash.hIncrBy(container, "counter", 1);
+            case "hash.hExists":
+                return batch.hash.hExists(container, element);
+            case "hash.hLen":
+                return batch.hash.hLen(container);
+            case "set.sAdd":
+                return batch.set.sAdd(container, element);
+            case "set.sIsMember":
+                return batch.set.sIsMember(container, element);
+            case "set.sMembers":
+                return batch.set.sMembers(container);
+            case "set.sCard":
+                return batch.set.sCard(container);
+            case "zset.zAdd":
+                return batch.zset.zAdd(container, Collections.singletonMap(element, (double) n));
+            case "zset.zRange":
+                return batch.zset.zRange(container, 0, 9, true);
+            case "zset.zRangeByScore":
+                return batch.zset.zRangeByScore(container, 10, 19, true);
+            case "zset.zRank":
+                return batch.zset.zRank(container, element);
+            case "zset.zCard":
+                return batch.zset.zCard(container);
+            default:
+                throw new IllegalArgumentException("未知的operation: " + operation);
+        }
+    }
+
+    private String containerKey(int n) {
+        String prefix = operation.substring(0, Math.max(0, operation.indexOf('.')));
+        int index = n & (CONTAINERS - 1);
+        switch (prefix) {
+            case "list":
+                return listKeys[index];
+            case "hash":
+                return hashKeys[index];
+            case "set":
+                return setKeys[index];
+            case "zset":
+                return zsetKeys[index];
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * mget/mset每次携带10个key
+     */
+    private List<String> keyRange(int n) {
+        List<String> keys = new ArrayList<>(10);
+        for (int i = 0; i < 10; i++) {
+            keys.add(stringKeys[(n + i) & (KEYS - 1)]);
+        }
+        return keys;
+    }
+
+    private Map<String, String> msetMap(int n) {
+        Map<String, String> map = new HashMap<>();
+        for (String key : keyRange(n)) {
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    private Object msetArgument(int n) {
+        Map<String, String> map = msetMap(n);
+        redisUtils.string.mset(map);
+        return map;
+    }
+
+    private Object[] fieldRange(int n) {
+        Object[] fields = new Object[10];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = elements[(n + i) & (ELEMENTS - 1)];
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,1279 @@
+package com.iot.xust.redistest.benchmark;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 21:10 2026/10/18  2026
+ * @Description: 进程内的RESP协议替身，实现RedisUtils用到的string/list/hash/set/zset/key命令，让基准测试不依赖真实的Redis。
+ * 与Redis一样所有命令串行执行；客户端的输入缓冲读空时才刷新输出，管道中的回复会合并发送。
+ * 不支持脚本、事务和发布订阅，测得的是客户端、序列化和网络栈的开销，不代表真实Redis的服务端耗时
+ */
+public class RespServer implements Closeable {
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NIL = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket serverSocket;
+
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "resp-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<ByteBuffer, Object> data = new HashMap<>();
+
+    private final Map<ByteBuffer, Long> expires = new HashMap<>();
+
+    private final Random random = new Random(42);
+
+    private volatile boolean running = true;
+
+    public RespServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        workers.execute(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        workers.shutdownNow();
+    }
+
+    public synchronized void flushAll() {
+        data.clear();
+        expires.clear();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                workers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (running) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedInputStream in = new BufferedInputStream(s.getInputStream(), 64 * 1024);
+             BufferedOutputStream out = new BufferedOutputStream(s.getOutputStream(), 64 * 1024)) {
+            Reply reply = new Reply(out);
+            byte[][] command;
+            while (Objects.nonNull(command = readCommand(in))) {
+                try {
+                    synchronized (this) {
+                        execute(command, reply);
+                    }
+                } catch (RespError e) {
+                    reply.error(e.getMessage());
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketException e) {
+            //客户端断开
+        } catch (IOException e) {
+            if (running) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static byte[][] readCommand(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        if (first != '*') {
+            throw new IOException("只支持RESP数组格式的命令");
+        }
+        int count = (int) readLong(in);
+        byte[][] args = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("命令参数必须是bulk string");
+            }
+            int length = (int) readLong(in);
+            byte[] arg = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(arg, read, length - read);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                read += n;
+            }
+            in.read();
+            in.read();
+            args[i] = arg;
+        }
+        return args;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private void execute(byte[][] a, Reply r) throws IOException {
+        String name = new String(a[0], StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            //连接和服务端
+            case "PING":
+                if (a.length > 1) {
+                    r.bulk(a[1]);
+                } else {
+                    r.simple("PONG");
+                }
+                return;
+            case "ECHO":
+                r.bulk(a[1]);
+                return;
+            case "SELECT":
+            case "CLIENT":
+            case "QUIT":
+                r.ok();
+                return;
+            case "FLUSHDB":
+            case "FLUSHALL":
+                flushAll();
+                r.ok();
+                return;
+            case "DBSIZE":
+                r.integer(data.size());
+                return;
+            case "INFO":
+                r.bulk("# Server\r\nredis_version:5.0.0\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            case "EVAL":
+            case "EVALSHA":
+            case "SCRIPT":
+            case "MULTI":
+            case "EXEC":
+            case "SUBSCRIBE":
+            case "PSUBSCRIBE":
+                throw new RespError("ERR " + name + " is not supported by the stand-in server");
+            //key
+            case "DEL":
+            case "UNLINK": {
+                long removed = 0;
+                for (int i = 1; i < a.length; i++) {
+                    if (Objects.nonNull(remove(key(a[i])))) {
+                        removed++;
+                    }
+                }
+                r.integer(removed);
+                return;
+            }
+            case "EXISTS": {
+                long count = 0;
+                for (int i = 1; i < a.length; i++) {
+                    if (Objects.nonNull(lookup(key(a[i])))) {
+                        count++;
+                    }
+                }
+                r.integer(count);
+                return;
+            }
+            case "EXPIRE":
+            case "PEXPIRE": {
+                ByteBuffer key = key(a[1]);
+                if (Objects.isNull(lookup(key))) {
+                    r.integer(0);
+                    return;
+                }
+                long timeout = longArg(a[2]);
+                expires.put(key, System.currentTimeMillis() + ("EXPIRE".equals(name) ? timeout * 1000 : timeout));
+                r.integer(1);
+                return;
+            }
+            case "PERSIST":
+                r.integer(Objects.nonNull(lookup(key(a[1]))) && Objects.nonNull(expires.remove(key(a[1]))) ? 1 : 0);
+                return;
+            case "TTL":
+            case "PTTL": {
+                ByteBuffer key = key(a[1]);
+                if (Objects.isNull(lookup(key))) {
+                    r.integer(-2);
+                    return;
+                }
+                Long expireAt = expires.get(key);
+                if (Objects.isNull(expireAt)) {
+                    r.integer(-1);
+                    return;
+                }
+                long millis = expireAt - System.currentTimeMillis();
+                r.integer("TTL".equals(name) ? (millis + 500) / 1000 : millis);
+                return;
+            }
+            case "TYPE":
+                r.simple(typeOf(lookup(key(a[1]))));
+                return;
+            case "RENAME": {
+                Object value = remove(key(a[1]));
+                if (Objects.isNull(value)) {
+                    throw new RespError("ERR no such key");
+                }
+                remove(key(a[2]));
+                data.put(key(a[2]), value);
+                r.ok();
+                return;
+            }
+            case "MOVE":
+                r.integer(0);
+                return;
+            case "KEYS": {
+                List<byte[]> keys = matchingKeys(a[1]);
+                r.array(keys.size());
+                for (byte[] key : keys) {
+                    r.bulk(key);
+                }
+                return;
+            }
+            case "SCAN": {
+                byte[] pattern = option(a, 2, "MATCH");
+                List<byte[]> keys = matchingKeys(Objects.isNull(pattern) ? new byte[]{'*'} : pattern);
+                r.array(2);
+                r.bulk(new byte[]{'0'});
+                r.array(keys.size());
+                for (byte[] key : keys) {
+                    r.bulk(key);
+                }
+                return;
+            }
+            //string
+            case "GET":
+                r.bulk(string(key(a[1])));
+                return;
+            case "SET": {
+                ByteBuffer key = key(a[1]);
+                boolean nx = false;
+                boolean xx = false;
+                long expireAt = -1;
+                for (int i = 3; i < a.length; i++) {
+                    String option = new String(a[i], StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+                    if ("NX".equals(option)) {
+                        nx = true;
+                    } else if ("XX".equals(option)) {
+                        xx = true;
+                    } else if ("EX".equals(option)) {
+                        expireAt = System.currentTimeMillis() + longArg(a[++i]) * 1000;
+                    } else if ("PX".equals(option)) {
+                        expireAt = System.currentTimeMillis() + longArg(a[++i]);
+                    } else {
+                        throw new RespError("ERR syntax error");
+                    }
+                }
+                boolean exists = Objects.nonNull(lookup(key));
+                if ((nx && exists) || (xx && !exists)) {
+                    r.nil();
+                    return;
+                }
+                putString(key, a[2], expireAt);
+                r.ok();
+                return;
+            }
+            case "SETNX": {
+                ByteBuffer key = key(a[1]);
+                if (Objects.nonNull(lookup(key))) {
+                    r.integer(0);
+                    return;
+                }
+                putString(key, a[2], -1);
+                r.integer(1);
+                return;
+            }
+            case "SETEX":
+            case "PSETEX": {
+                long timeout = longArg(a[2]);
+                putString(key(a[1]), a[3], System.currentTimeMillis() + ("SETEX".equals(name) ? timeout * 1000 : timeout));
+                r.ok();
+                return;
+            }
+            case "GETSET": {
+                ByteBuffer key = key(a[1]);
+                byte[] old = string(key);
+                putString(key, a[2], -1);
+                r.bulk(old);
+                return;
+            }
+            case "MGET":
+                r.array(a.length - 1);
+                for (int i = 1; i < a.length; i++) {
+                    Object value = lookup(key(a[i]));
+                    r.bulk(value instanceof byte[] ? (byte[]) value : null);
+                }
+                return;
+            case "MSET":
+                for (int i = 1; i + 1 < a.length; i += 2) {
+                    putString(key(a[i]), a[i + 1], -1);
+                }
+                r.ok();
+                return;
+            case "MSETNX": {
+                for (int i = 1; i + 1 < a.length; i += 2) {
+                    if (Objects.nonNull(lookup(key(a[i])))) {
+                        r.integer(0);
+                        return;
+                    }
+                }
+                for (int i = 1; i + 1 < a.length; i += 2) {
+                    putString(key(a[i]), a[i + 1], -1);
+                }
+                r.integer(1);
+                return;
+            }
+            case "INCR":
+            case "DECR":
+            case "INCRBY":
+            case "DECRBY": {
+                ByteBuffer key = key(a[1]);
+                long delta = name.endsWith("BY") ? longArg(a[2]) : 1;
+                if (name.startsWith("DECR")) {
+                    delta = -delta;
+                }
+                byte[] old = string(key);
+                long value = (Objects.isNull(old) ? 0 : longArg(old)) + delta;
+                data.put(key, ascii(Long.toString(value)));
+                r.integer(value);
+                return;
+            }
+            case "INCRBYFLOAT": {
+                ByteBuffer key = key(a[1]);
+                byte[] old = string(key);
+                double value = (Objects.isNull(old) ? 0 : doubleArg(old)) + doubleArg(a[2]);
+                byte[] formatted = ascii(formatDouble(value));
+                data.put(key, formatted);
+                r.bulk(formatted);
+                return;
+            }
+            case "APPEND": {
+                ByteBuffer key = key(a[1]);
+                byte[] old = string(key);
+                byte[] value = Objects.isNull(old) ? a[2] : concat(old, a[2]);
+                data.put(key, value);
+                r.integer(value.length);
+                return;
+            }
+            case "STRLEN": {
+                byte[] value = string(key(a[1]));
+                r.integer(Objects.isNull(value) ? 0 : value.length);
+                return;
+            }
+            case "GETRANGE": {
+                byte[] value = string(key(a[1]));
+                if (Objects.isNull(value)) {
+                    r.bulk(new byte[0]);
+                    return;
+                }
+                int[] range = range(value.length, longArg(a[2]), longArg(a[3]));
+                r.bulk(Arrays.copyOfRange(value, range[0], Math.max(range[0], range[1] + 1)));
+                return;
+            }
+            case "SETRANGE": {
+                ByteBuffer key = key(a[1]);
+                byte[] old = string(key);
+                int offset = (int) longArg(a[2]);
+                byte[] value = Arrays.copyOf(Objects.isNull(old) ? new byte[0] : old, Math.max(Objects.isNull(old) ? 0 : old.length, offset + a[3].length));
+                System.arraycopy(a[3], 0, value, offset, a[3].length);
+                data.put(key, value);
+                r.integer(value.length);
+                return;
+            }
+            //list
+            case "LPUSH":
+            case "RPUSH":
+            case "LPUSHX":
+            case "RPUSHX": {
+                ByteBuffer key = key(a[1]);
+                boolean onlyIfExists = name.endsWith("X");
+                LinkedList<byte[]> list = list(key, !onlyIfExists);
+                if (Objects.isNull(list)) {
+                    r.integer(0);
+                    return;
+                }
+                for (int i = 2; i < a.length; i++) {
+                    if (name.startsWith("L")) {
+                        list.addFirst(a[i]);
+                    } else {
+                        list.addLast(a[i]);
+                    }
+                }
+                r.integer(list.size());
+                return;
+            }
+            case "LPOP":
+            case "RPOP": {
+                ByteBuffer key = key(a[1]);
+                LinkedList<byte[]> list = list(key, false);
+                if (Objects.isNull(list)) {
+                    r.nil();
+                    return;
+                }
+                byte[] value = "LPOP".equals(name) ? list.pollFirst() : list.pollLast();
+                removeIfEmpty(key, list);
+                r.bulk(value);
+                return;
+            }
+            case "RPOPLPUSH": {
+                ByteBuffer source = key(a[1]);
+                LinkedList<byte[]> list = list(source, false);
+                if (Objects.isNull(list)) {
+                    r.nil();
+                    return;
+                }
+                byte[] value = list.pollLast();
+                removeIfEmpty(source, list);
+                list(key(a[2]), true).addFirst(value);
+                r.bulk(value);
+                return;
+            }
+            case "LLEN": {
+                LinkedList<byte[]> list = list(key(a[1]), false);
+                r.integer(Objects.isNull(list) ? 0 : list.size());
+                return;
+            }
+            case "LRANGE": {
+                LinkedList<byte[]> list = list(key(a[1]), false);
+                List<byte[]> values = Objects.isNull(list) ? Collections.emptyList() : slice(list, longArg(a[2]), longArg(a[3]));
+                r.array(values.size());
+                for (byte[] value : values) {
+                    r.bulk(value);
+                }
+                return;
+            }
+            case "LINDEX": {
+                LinkedList<byte[]> list = list(key(a[1]), false);
+                int index = Objects.isNull(list) ? -1 : index(list.size(), longArg(a[2]));
+                r.bulk(index < 0 ? null : list.get(index));
+                return;
+            }
+            case "LSET": {
+                LinkedList<byte[]> list = list(key(a[1]), false);
+                if (Objects.isNull(list)) {
+                    throw new RespError("ERR no such key");
+                }
+                int index = index(list.size(), longArg(a[2]));
+                if (index < 0) {
+                    throw new RespError("ERR index out of range");
+                }
+                list.set(index, a[3]);
+                r.ok();
+                return;
+            }
+            case "LTRIM": {
+                ByteBuffer key = key(a[1]);
+                LinkedList<byte[]> list = list(key, false);
+                if (Objects.nonNull(list)) {
+                    LinkedList<byte[]> trimmed = new LinkedList<>(slice(list, longArg(a[2]), longArg(a[3])));
+                    data.put(key, trimmed);
+                    removeIfEmpty(key, trimmed);
+                }
+                r.ok();
+                return;
+            }
+            case "LREM": {
+                ByteBuffer key = key(a[1]);
+                LinkedList<byte[]> list = list(key, false);
+                long count = longArg(a[2]);
+                long removed = 0;
+                if (Objects.nonNull(list)) {
+                    Iterator<byte[]> iterator = count < 0 ? list.descendingIterator() : list.iterator();
+                    while (iterator.hasNext() && (count == 0 || removed < Math.abs(count))) {
+                        if (Arrays.equals(iterator.next(), a[3])) {
+                            iterator.remove();
+                            removed++;
+                        }
+                    }
+                    removeIfEmpty(key, list);
+                }
+                r.integer(removed);
+                return;
+            }
+            case "LINSERT": {
+                LinkedList<byte[]> list = list(key(a[1]), false);
+                if (Objects.isNull(list)) {
+                    r.integer(0);
+                    return;
+                }
+                boolean before = "BEFORE".equalsIgnoreCase(new String(a[2], StandardCharsets.US_ASCII));
+                ListIterator<byte[]> iterator = list.listIterator();
+                while (iterator.hasNext()) {
+                    if (Arrays.equals(iterator.next(), a[3])) {
+                        if (before) {
+                            iterator.previous();
+                        }
+                        iterator.add(a[4]);
+                        r.integer(list.size());
+                        return;
+                    }
+                }
+                r.integer(-1);
+                return;
+            }
+            //hash
+            case "HSET":
+            case "HMSET": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), true);
+                long added = 0;
+                for (int i = 2; i + 1 < a.length; i += 2) {
+                    if (Objects.isNull(hash.put(key(a[i]), a[i + 1]))) {
+                        added++;
+                    }
+                }
+                if ("HSET".equals(name)) {
+                    r.integer(added);
+                } else {
+                    r.ok();
+                }
+                return;
+            }
+            case "HSETNX": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), true);
+                r.integer(Objects.isNull(hash.putIfAbsent(key(a[2]), a[3])) ? 1 : 0);
+                return;
+            }
+            case "HGET": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                r.bulk(Objects.isNull(hash) ? null : hash.get(key(a[2])));
+                return;
+            }
+            case "HMGET": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                r.array(a.length - 2);
+                for (int i = 2; i < a.length; i++) {
+                    r.bulk(Objects.isNull(hash) ? null : hash.get(key(a[i])));
+                }
+                return;
+            }
+            case "HGETALL":
+            case "HKEYS":
+            case "HVALS": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                Map<ByteBuffer, byte[]> entries = Objects.isNull(hash) ? Collections.emptyMap() : hash;
+                r.array("HGETALL".equals(name) ? entries.size() * 2 : entries.size());
+                for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+                    if (!"HVALS".equals(name)) {
+                        r.bulk(bytes(entry.getKey()));
+                    }
+                    if (!"HKEYS".equals(name)) {
+                        r.bulk(entry.getValue());
+                    }
+                }
+                return;
+            }
+            case "HDEL": {
+                ByteBuffer key = key(a[1]);
+                Map<ByteBuffer, byte[]> hash = hash(key, false);
+                long removed = 0;
+                if (Objects.nonNull(hash)) {
+                    for (int i = 2; i < a.length; i++) {
+                        if (Objects.nonNull(hash.remove(key(a[i])))) {
+                            removed++;
+                        }
+                    }
+                    removeIfEmpty(key, hash);
+                }
+                r.integer(removed);
+                return;
+            }
+            case "HLEN": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                r.integer(Objects.isNull(hash) ? 0 : hash.size());
+                return;
+            }
+            case "HEXISTS": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                r.integer(Objects.nonNull(hash) && hash.containsKey(key(a[2])) ? 1 : 0);
+                return;
+            }
+            case "HSTRLEN": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                byte[] value = Objects.isNull(hash) ? null : hash.get(key(a[2]));
+                r.integer(Objects.isNull(value) ? 0 : value.length);
+                return;
+            }
+            case "HINCRBY": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), true);
+                byte[] old = hash.get(key(a[2]));
+                long value = (Objects.isNull(old) ? 0 : longArg(old)) + longArg(a[3]);
+                hash.put(key(a[2]), ascii(Long.toString(value)));
+                r.integer(value);
+                return;
+            }
+            case "HINCRBYFLOAT": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), true);
+                byte[] old = hash.get(key(a[2]));
+                byte[] value = ascii(formatDouble((Objects.isNull(old) ? 0 : doubleArg(old)) + doubleArg(a[3])));
+                hash.put(key(a[2]), value);
+                r.bulk(value);
+                return;
+            }
+            case "HSCAN": {
+                Map<ByteBuffer, byte[]> hash = hash(key(a[1]), false);
+                Map<ByteBuffer, byte[]> entries = Objects.isNull(hash) ? Collections.emptyMap() : hash;
+                Pattern pattern = glob(option(a, 3, "MATCH"));
+                List<byte[]> reply = new ArrayList<>();
+                for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+                    if (matches(pattern, bytes(entry.getKey()))) {
+                        reply.add(bytes(entry.getKey()));
+                        reply.add(entry.getValue());
+                    }
+                }
+                scanReply(r, reply);
+                return;
+            }
+            //set
+            case "SADD": {
+                Set<ByteBuffer> set = set(key(a[1]), true);
+                long added = 0;
+                for (int i = 2; i < a.length; i++) {
+                    if (set.add(key(a[i]))) {
+                        added++;
+                    }
+                }
+                r.integer(added);
+                return;
+            }
+            case "SREM": {
+                ByteBuffer key = key(a[1]);
+                Set<ByteBuffer> set = set(key, false);
+                long removed = 0;
+                if (Objects.nonNull(set)) {
+                    for (int i = 2; i < a.length; i++) {
+                        if (set.remove(key(a[i]))) {
+                            removed++;
+                        }
+                    }
+                    removeIfEmpty(key, set);
+                }
+                r.integer(removed);
+                return;
+            }
+            case "SMEMBERS":
+                members(r, set(key(a[1]), false));
+                return;
+            case "SISMEMBER": {
+                Set<ByteBuffer> set = set(key(a[1]), false);
+                r.integer(Objects.nonNull(set) && set.contains(key(a[2])) ? 1 : 0);
+                return;
+            }
+            case "SCARD": {
+                Set<ByteBuffer> set = set(key(a[1]), false);
+                r.integer(Objects.isNull(set) ? 0 : set.size());
+                return;
+            }
+            case "SRANDMEMBER":
+            case "SPOP": {
+                ByteBuffer key = key(a[1]);
+                Set<ByteBuffer> set = set(key, false);
+                List<ByteBuffer> members = Objects.isNull(set) ? new ArrayList<>() : new ArrayList<>(set);
+                Collections.shuffle(members, random);
+                if (a.length < 3) {
+                    ByteBuffer member = members.isEmpty() ? null : members.get(0);
+                    if ("SPOP".equals(name) && Objects.nonNull(member)) {
+                        set.remove(member);
+                        removeIfEmpty(key, set);
+                    }
+                    r.bulk(Objects.isNull(member) ? null : bytes(member));
+                    return;
+                }
+                List<ByteBuffer> chosen = members.subList(0, (int) Math.min(Math.abs(longArg(a[2])), members.size()));
+                r.array(chosen.size());
+                for (ByteBuffer member : chosen) {
+                    r.bulk(bytes(member));
+                }
+                if ("SPOP".equals(name) && Objects.nonNull(set)) {
+                    set.removeAll(chosen);
+                    removeIfEmpty(key, set);
+                }
+                return;
+            }
+            case "SMOVE": {
+                ByteBuffer source = key(a[1]);
+                Set<ByteBuffer> set = set(source, false);
+                if (Objects.isNull(set) || !set.remove(key(a[3]))) {
+                    r.integer(0);
+                    return;
+                }
+                removeIfEmpty(source, set);
+                set(key(a[2]), true).add(key(a[3]));
+                r.integer(1);
+                return;
+            }
+            case "SDIFF":
+            case "SINTER":
+            case "SUNION":
+                members(r, combine(name, a, 1));
+                return;
+            case "SDIFFSTORE":
+            case "SINTERSTORE":
+            case "SUNIONSTORE": {
+                Set<ByteBuffer> result = combine(name.substring(0, name.length() - 5), a, 2);
+                ByteBuffer destination = key(a[1]);
+                remove(destination);
+                if (!result.isEmpty()) {
+                    data.put(destination, result);
+                }
+                r.integer(result.size());
+                return;
+            }
+            case "SSCAN": {
+                Set<ByteBuffer> set = set(key(a[1]), false);
+                Pattern pattern = glob(option(a, 3, "MATCH"));
+                List<byte[]> reply = new ArrayList<>();
+                for (ByteBuffer member : Objects.isNull(set) ? Collections.<ByteBuffer>emptySet() : set) {
+                    if (matches(pattern, bytes(member))) {
+                        reply.add(bytes(member));
+                    }
+                }
+                scanReply(r, reply);
+                return;
+            }
+            //zset
+            case "ZADD": {
+                Map<ByteBuffer, Double> zset = zset(key(a[1]), true);
+                boolean nx = false;
+                boolean xx = false;
+                boolean ch = false;
+                boolean incr = false;
+                int i = 2;
+                for (; i < a.length; i++) {
+                    String option = new String(a[i], StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+                    if ("NX".equals(option)) {
+                        nx = true;
+                    } else if ("XX".equals(option)) {
+                        xx = true;
+                    } else if ("CH".equals(option)) {
+                        ch = true;
+                    } else if ("INCR".equals(option)) {
+                        incr = true;
+                    } else {
+                        break;
+                    }
+                }
+                long changed = 0;
+                Double last = null;
+                for (; i + 1 < a.length; i += 2) {
+                    ByteBuffer member = key(a[i + 1]);
+                    Double old = zset.get(member);
+                    if ((nx && Objects.nonNull(old)) || (xx && Objects.isNull(old))) {
+                        continue;
+                    }
+                    double score = doubleArg(a[i]) + (incr && Objects.nonNull(old) ? old : 0D);
+                    zset.put(member, score);
+                    last = score;
+                    if (Objects.isNull(old) || (ch && old != score)) {
+                        changed++;
+                    }
+                }
+                removeIfEmpty(key(a[1]), zset);
+                if (incr) {
+                    r.bulk(Objects.isNull(last) ? null : ascii(formatDouble(last)));
+                } else {
+                    r.integer(changed);
+                }
+                return;
+            }
+            case "ZINCRBY": {
+                Map<ByteBuffer, Double> zset = zset(key(a[1]), true);
+                double score = zset.merge(key(a[3]), doubleArg(a[2]), Double::sum);
+                r.bulk(ascii(formatDouble(score)));
+                return;
+            }
+            case "ZSCORE": {
+                Map<ByteBuffer, Double> zset = zset(key(a[1]), false);
+                Double score = Objects.isNull(zset) ? null : zset.get(key(a[2]));
+                r.bulk(Objects.isNull(score) ? null : ascii(formatDouble(score)));
+                return;
+            }
+            case "ZREM": {
+                ByteBuffer key = key(a[1]);
+                Map<ByteBuffer, Double> zset = zset(key, false);
+                long removed = 0;
+                if (Objects.nonNull(zset)) {
+                    for (int i = 2; i < a.length; i++) {
+                        if (Objects.nonNull(zset.remove(key(a[i])))) {
+                            removed++;
+                        }
+                    }
+                    removeIfEmpty(key, zset);
+                }
+                r.integer(removed);
+                return;
+            }
+            case "ZCARD": {
+                Map<ByteBuffer, Double> zset = zset(key(a[1]), false);
+                r.integer(Objects.isNull(zset) ? 0 : zset.size());
+                return;
+            }
+            case "ZCOUNT": {
+                List<Map.Entry<ByteBuffer, Double>> entries = byScore(zset(key(a[1]), false), a[2], a[3]);
+                r.integer(entries.size());
+                return;
+            }
+            case "ZRANGE":
+            case "ZREVRANGE": {
+                List<Map.Entry<ByteBuffer, Double>> sorted = sorted(zset(key(a[1]), false), "ZREVRANGE".equals(name));
+                scored(r, slice(sorted, longArg(a[2]), longArg(a[3])), a.length > 4);
+                return;
+            }
+            case "ZRANGEBYSCORE":
+            case "ZREVRANGEBYSCORE": {
+                boolean reverse = "ZREVRANGEBYSCORE".equals(name);
+                List<Map.Entry<ByteBuffer, Double>> entries = reverse
+                        ? byScore(zset(key(a[1]), false), a[3], a[2])
+                        : byScore(zset(key(a[1]), false), a[2], a[3]);
+                if (reverse) {
+                    Collections.reverse(entries);
+                }
+                boolean withScores = false;
+                for (int i = 4; i < a.length; i++) {
+                    String option = new String(a[i], StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+                    if ("WITHSCORES".equals(option)) {
+                        withScores = true;
+                    } else if ("LIMIT".equals(option)) {
+                        int offset = (int) longArg(a[++i]);
+                        long count = longArg(a[++i]);
+                        int from = Math.min(offset, entries.size());
+                        int to = count < 0 ? entries.size() : (int) Math.min(entries.size(), from + count);
+                        entries = entries.subList(from, to);
+                    }
+                }
+                scored(r, entries, withScores);
+                return;
+            }
+            case "ZRANK":
+            case "ZREVRANK": {
+                List<Map.Entry<ByteBuffer, Double>> sorted = sorted(zset(key(a[1]), false), "ZREVRANK".equals(name));
+                ByteBuffer member = key(a[2]);
+                for (int i = 0; i < sorted.size(); i++) {
+                    if (sorted.get(i).getKey().equals(member)) {
+                        r.integer(i);
+                        return;
+                    }
+                }
+                r.nil();
+                return;
+            }
+            case "ZSCAN": {
+                Pattern pattern = glob(option(a, 3, "MATCH"));
+                List<byte[]> reply = new ArrayList<>();
+                for (Map.Entry<ByteBuffer, Double> entry : sorted(zset(key(a[1]), false), false)) {
+                    if (matches(pattern, bytes(entry.getKey()))) {
+                        reply.add(bytes(entry.getKey()));
+                        reply.add(ascii(formatDouble(entry.getValue())));
+                    }
+                }
+                scanReply(r, reply);
+                return;
+            }
+            default:
+                throw new RespError("ERR unknown command '" + name + "'");
+        }
+    }
+
+    private static ByteBuffer key(byte[] bytes) {
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        return buffer.array();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static long longArg(byte[] bytes) {
+        try {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new RespError("ERR value is not an integer or out of range");
+        }
+    }
+
+    private static double doubleArg(byte[] bytes) {
+        String s = new String(bytes, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+        if (s.endsWith("inf")) {
+            return s.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new RespError("ERR value is not a valid float");
+        }
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String typeOf(Object value) {
+        if (Objects.isNull(value)) {
+            return "none";
+        }
+        if (value instanceof byte[]) {
+            return "string";
+        }
+        if (value instanceof LinkedList) {
+            return "list";
+        }
+        if (value instanceof ZSet) {
+            return "zset";
+        }
+        if (value instanceof Map) {
+            return "hash";
+        }
+        return "set";
+    }
+
+    private Object lookup(ByteBuffer key) {
+        Long expireAt = expires.get(key);
+        if (Objects.nonNull(expireAt) && expireAt <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return data.get(key);
+    }
+
+    private Object remove(ByteBuffer key) {
+        Object value = lookup0(key);
+        data.remove(key);
+        expires.remove(key);
+        return value;
+    }
+
+    private Object lookup0(ByteBuffer key) {
+        Long expireAt = expires.get(key);
+        return Objects.nonNull(expireAt) && expireAt <= System.currentTimeMillis() ? null : data.get(key);
+    }
+
+    private void putString(ByteBuffer key, byte[] value, long expireAt) {
+        data.put(key, value);
+        if (expireAt > 0) {
+            expires.put(key, expireAt);
+        } else {
+            expires.remove(key);
+        }
+    }
+
+    private byte[] string(ByteBuffer key) {
+        return typed(key, byte[].class, false, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LinkedList<byte[]> list(ByteBuffer key, boolean create) {
+        return typed(key, LinkedList.class, create, LinkedList::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<ByteBuffer, byte[]> hash(ByteBuffer key, boolean create) {
+        return typed(key, LinkedHashMap.class, create, LinkedHashMap::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ByteBuffer> set(ByteBuffer key, boolean create) {
+        return typed(key, LinkedHashSet.class, create, LinkedHashSet::new);
+    }
+
+    private Map<ByteBuffer, Double> zset(ByteBuffer key, boolean create) {
+        return typed(key, ZSet.class, create, ZSet::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T typed(ByteBuffer key, Class<?> type, boolean create, java.util.function.Supplier<?> factory) {
+        Object value = lookup(key);
+        if (Objects.isNull(value)) {
+            if (!create) {
+                return null;
+            }
+            value = factory.get();
+            data.put(key, value);
+        }
+        if (value.getClass() != type) {
+            throw new RespError("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        return (T) value;
+    }
+
+    private void removeIfEmpty(ByteBuffer key, Object container) {
+        boolean empty = container instanceof Collection ? ((Collection<?>) container).isEmpty() : ((Map<?, ?>) container).isEmpty();
+        if (empty) {
+            remove(key);
+        }
+    }
+
+    private Set<ByteBuffer> combine(String operation, byte[][] a, int from) {
+        Set<ByteBuffer> first = set(key(a[from]), false);
+        Set<ByteBuffer> result = Objects.isNull(first) ? new LinkedHashSet<>() : new LinkedHashSet<>(first);
+        for (int i = from + 1; i < a.length; i++) {
+            Set<ByteBuffer> other = set(key(a[i]), false);
+            Set<ByteBuffer> members = Objects.isNull(other) ? Collections.emptySet() : other;
+            if ("SDIFF".equals(operation)) {
+                result.removeAll(members);
+            } else if ("SINTER".equals(operation)) {
+                result.retainAll(members);
+            } else {
+                result.addAll(members);
+            }
+        }
+        return result;
+    }
+
+    private List<byte[]> matchingKeys(byte[] pattern) {
+        Pattern regex = glob(pattern);
+        List<byte[]> keys = new ArrayList<>();
+        for (ByteBuffer key : new ArrayList<>(data.keySet())) {
+            if (Objects.nonNull(lookup(key)) && matches(regex, bytes(key))) {
+                keys.add(bytes(key));
+            }
+        }
+        return keys;
+    }
+
+    private static byte[] option(byte[][] a, int from, String name) {
+        for (int i = from; i + 1 < a.length; i++) {
+            if (name.equalsIgnoreCase(new String(a[i], StandardCharsets.US_ASCII))) {
+                return a[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把glob模式转换成正则，key按ISO-8859-1解码以便逐字节匹配
+     */
+    private static Pattern glob(byte[] pattern) {
+        if (Objects.isNull(pattern)) {
+            return null;
+        }
+        String glob = new String(pattern, StandardCharsets.ISO_8859_1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    regex.append(glob, i, end + 1);
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static boolean matches(Pattern pattern, byte[] value) {
+        return Objects.isNull(pattern) || pattern.matcher(new String(value, StandardCharsets.ISO_8859_1)).matches();
+    }
+
+    private static int index(int size, long index) {
+        long normalized = index < 0 ? size + index : index;
+        return normalized < 0 || normalized >= size ? -1 : (int) normalized;
+    }
+
+    private static int[] range(int size, long start, long stop) {
+        long from = start < 0 ? Math.max(0, size + start) : start;
+        long to = stop < 0 ? size + stop : Math.min(stop, size - 1L);
+        return new int[]{(int) Math.min(from, size), (int) to};
+    }
+
+    private static <T> List<T> slice(List<T> values, long start, long stop) {
+        int[] range = range(values.size(), start, stop);
+        if (range[0] > range[1] || range[0] >= values.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(values.subList(range[0], range[1] + 1));
+    }
+
+    private static List<Map.Entry<ByteBuffer, Double>> sorted(Map<ByteBuffer, Double> zset, boolean reverse) {
+        List<Map.Entry<ByteBuffer, Double>> entries = Objects.isNull(zset) ? new ArrayList<>() : new ArrayList<>(zset.entrySet());
+        Comparator<Map.Entry<ByteBuffer, Double>> order = Comparator.<Map.Entry<ByteBuffer, Double>>comparingDouble(Map.Entry::getValue)
+                .thenComparing(Map.Entry::getKey);
+        entries.sort(reverse ? order.reversed() : order);
+        return entries;
+    }
+
+    private static List<Map.Entry<ByteBuffer, Double>> byScore(Map<ByteBuffer, Double> zset, byte[] min, byte[] max) {
+        List<Map.Entry<ByteBuffer, Double>> result = new ArrayList<>();
+        for (Map.Entry<ByteBuffer, Double> entry : sorted(zset, false)) {
+            if (above(entry.getValue(), min) && below(entry.getValue(), max)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static boolean above(double score, byte[] bound) {
+        boolean exclusive = bound.length > 0 && bound[0] == '(';
+        double limit = doubleArg(exclusive ? Arrays.copyOfRange(bound, 1, bound.length) : bound);
+        return exclusive ? score > limit : score >= limit;
+    }
+
+    private static boolean below(double score, byte[] bound) {
+        boolean exclusive = bound.length > 0 && bound[0] == '(';
+        double limit = doubleArg(exclusive ? Arrays.copyOfRange(bound, 1, bound.length) : bound);
+        return exclusive ? score < limit : score <= limit;
+    }
+
+    private static void members(Reply r, Set<ByteBuffer> set) throws IOException {
+        Set<ByteBuffer> members = Objects.isNull(set) ? Collections.emptySet() : set;
+        r.array(members.size());
+        for (ByteBuffer member : members) {
+            r.bulk(bytes(member));
+        }
+    }
+
+    private static void scored(Reply r, List<Map.Entry<ByteBuffer, Double>> entries, boolean withScores) throws IOException {
+        r.array(withScores ? entries.size() * 2 : entries.size());
+        for (Map.Entry<ByteBuffer, Double> entry : entries) {
+            r.bulk(bytes(entry.getKey()));
+            if (withScores) {
+                r.bulk(ascii(formatDouble(entry.getValue())));
+            }
+        }
+    }
+
+    private static void scanReply(Reply r, List<byte[]> values) throws IOException {
+        r.array(2);
+        r.bulk(new byte[]{'0'});
+        r.array(values.size());
+        for (byte[] value : values) {
+            r.bulk(value);
+        }
+    }
+
+    /**
+     * 有序集合：member -&gt; score，按需排序
+     */
+    private static final class ZSet extends HashMap<ByteBuffer, Double> {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class RespError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        RespError(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static final class Reply {
+
+        private final OutputStream out;
+
+        Reply(OutputStream out) {
+            this.out = out;
+        }
+
+        void ok() throws IOException {
+            out.write(OK);
+        }
+
+        void nil() throws IOException {
+            out.write(NIL);
+        }
+
+        void simple(String value) throws IOException {
+            out.write('+');
+            out.write(ascii(value));
+            crlf();
+        }
+
+        void error(String message) throws IOException {
+            out.write('-');
+            out.write(message.getBytes(StandardCharsets.UTF_8));
+            crlf();
+        }
+
+        void integer(long value) throws IOException {
+            out.write(':');
+            out.write(ascii(Long.toString(value)));
+            crlf();
+        }
+
+        void bulk(byte[] value) throws IOException {
+            if (Objects.isNull(value)) {
+                nil();
+                return;
+            }
+            out.write('$');
+            out.write(ascii(Integer.toString(value.length)));
+            crlf();
+            out.write(value);
+            crlf();
+        }
+
+        void array(int size) throws IOException {
+            out.write('*');
+            out.write(ascii(Integer.toString(size)));
+            crlf();
+        }
+
+        private void crlf() throws IOException {
+            out.write('\r');
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.iot.xust.redistest.benchmark;
+
+import com.iot.xust.redistest.codec.ValueCodec;
+import com.iot.xust.redistest.config.RedisConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 21:50 2026/10/18  2026
+ * @Description: 只测值的编解码，不经过网络。codec取值与redis.codec一致，带-lz4/-deflate后缀表示开启压缩（阈值1024字节）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"json", "binary", "binary-lz4", "binary-deflate"})
+    public String codec;
+
+    /**
+     * short: 32个字符；long: 8KB文本；number: Long；map: 16个字段的Map
+     */
+    @Param({"short", "long", "number", "map"})
+    public String payload;
+
+    private ValueCodec valueCodec;
+
+    private Object value;
+
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] parts = codec.split("-");
+        boolean compression = parts.length > 1;
+        valueCodec = new RedisConfig().valueCodec(parts[0], new String[0], compression, compression ? parts[1] : "lz4", 1024);
+        value = payload(payload);
+        encoded = valueCodec.encode(value);
+    }
+
+    private static Object payload(String payload) {
+        switch (payload) {
+            case "short":
+                return "user:profile:1234567890:nickname";
+            case "long": {
+                StringBuilder builder = new StringBuilder(8192);
+                Random random = new Random(42);
+                while (builder.length() < 8192) {
+                    builder.append("field").append(random.nextInt(100)).append('=').append(random.nextInt(10000)).append(';');
+                }
+                return builder.toString();
+            }
+            case "number":
+                return 1234567890123L;
+            case "map": {
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < 16; i++) {
+                    map.put("field" + i, i % 2 == 0 ? (Object) ("value" + i) : (Object) i);
+                }
+                return map;
+            }
+            default:
+                throw new IllegalArgumentException("未知的payload: " + payload);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return valueCodec.encode(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return valueCodec.decode(encoded);
+    }
+}
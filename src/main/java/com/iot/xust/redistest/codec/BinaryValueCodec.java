@@ -0,0 +1,312 @@
+package com.iot.xust.redistest.codec;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 16:50 2026/10/18  2026
+ * @Description: 紧凑的二进制格式
+ * <p>
+ * 字符串直接存UTF-8，数字直接存十进制文本，这样INCRBY/HINCRBY/INCRBYFLOAT可以直接作用于它们，读回来都是String。
+ * 其他类型以一个类型标记字节开头，整数用zigzag varint，字符串和字节数组带varint长度前缀，集合和Map递归编码。
+ * 类型标记都小于0x10，而合法的JSON不会以这些字节开头，所以解码时可以区分三种格式：
+ * 以类型标记开头的是二进制格式；以 " [ { 开头的按旧的Jackson格式解析（若配置了legacy）；其余是原样的字符串。
+ * 本身以这些字节开头的字符串在最外层写成 [TEXT][UTF-8]，不带长度前缀，APPEND/SETRANGE之后仍能完整解码，
+ * 按字节操作的命令只需跳过第一个字节；0x0F留给压缩包装使用。
+ * 任意对象以OBJECT标记写入类名和JSON，只允许可信包下的类，解码时不会加载从Redis读到的其他类名
+ */
+public class BinaryValueCodec implements ValueCodec {
+
+    static final byte STRING = 0x01;
+    static final byte LONG = 0x02;
+    static final byte INT = 0x03;
+    static final byte DOUBLE = 0x04;
+    static final byte TRUE = 0x05;
+    static final byte FALSE = 0x06;
+    static final byte BYTES = 0x07;
+    static final byte LIST = 0x08;
+    static final byte SET = 0x09;
+    static final byte MAP = 0x0A;
+    static final byte OBJECT = 0x0B;
+    static final byte NULL = 0x0C;
+
+    /**
+     * 只出现在最外层的字符串标记，其后直到末尾都是UTF-8
+     */
+    public static final byte TEXT = 0x0D;
+
+    /**
+     * 类型标记和压缩标记使用的最大字节
+     */
+    public static final byte MAX_RESERVED = 0x0F;
+
+    private static final byte MAX_TAG = TEXT;
+
+    private final ValueCodec legacy;
+
+    /**
+     * 允许以OBJECT标记编解码的类所在的包
+     */
+    private final List<String> trustedPackages;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param legacy 用来读取旧格式的编解码器，为null时不兼容旧格式
+     */
+    public BinaryValueCodec(ValueCodec legacy) {
+        this(legacy, Collections.emptyList());
+    }
+
+    /**
+     * @param legacy          用来读取旧格式的编解码器，为null时不兼容旧格式
+     * @param trustedPackages 允许以OBJECT标记编解码的类所在的包（包括子包）
+     */
+    public BinaryValueCodec(ValueCodec legacy, Collection<String> trustedPackages) {
+        this.legacy = legacy;
+        this.trustedPackages = new ArrayList<>();
+        for (String trustedPackage : trustedPackages) {
+            String name = trustedPackage.trim();
+            if (!name.isEmpty()) {
+                this.trustedPackages.add(name.endsWith(".") ? name : name + ".");
+            }
+        }
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (value instanceof String) {
+            String s = (String) value;
+            if (s.isEmpty() || !needsTag(s.charAt(0))) {
+                return s.getBytes(StandardCharsets.UTF_8);
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            byte[] text = new byte[utf8.length + 1];
+            text[0] = TEXT;
+            System.arraycopy(utf8, 0, text, 1, utf8.length);
+            return text;
+        } else if (value instanceof Number) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        Output out = new Output();
+        write(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes.length == 0) {
+            return "";
+        }
+        byte first = bytes[0];
+        if (first == TEXT) {
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+        if (first > 0 && first <= MAX_TAG) {
+            Input in = new Input(bytes);
+            return read(in);
+        }
+        if (legacy != null && (first == '"' || first == '[' || first == '{')) {
+            try {
+                return legacy.decode(bytes);
+            } catch (RuntimeException e) {
+                //不是合法的旧格式，当作原样的字符串
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean needsTag(char first) {
+        return first < 0x10 || first == '"' || first == '[' || first == '{';
+    }
+
+    private void write(Output out, Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String) {
+            out.write(STRING);
+            out.writeLengthPrefixed(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Long) {
+            out.write(LONG);
+            out.writeVarLong(zigzag((Long) value));
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.write(INT);
+            out.writeVarLong(zigzag(((Number) value).intValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof byte[]) {
+            out.write(BYTES);
+            out.writeLengthPrefixed((byte[]) value);
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            out.write(value instanceof Set ? SET : LIST);
+            out.writeVarLong(collection.size());
+            for (Object element : collection) {
+                write(out, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.write(MAP);
+            out.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else {
+            String className = value.getClass().getName();
+            if (!isTrusted(className)) {
+                throw new IllegalArgumentException("类型不在可信包中，无法编码 " + className);
+            }
+            out.write(OBJECT);
+            out.writeLengthPrefixed(className.getBytes(StandardCharsets.UTF_8));
+            try {
+                out.writeLengthPrefixed(objectMapper.writeValueAsBytes(value));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private Object read(Input in) {
+        byte tag = in.read();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(in.readBytes(), StandardCharsets.UTF_8);
+            case LONG:
+                return unzigzag(in.readVarLong());
+            case INT:
+                return (int) unzigzag(in.readVarLong());
+            case DOUBLE:
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (in.read() & 0xFF);
+                }
+                return Double.longBitsToDouble(bits);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTES:
+                return in.readBytes();
+            case LIST:
+            case SET:
+                int size = (int) in.readVarLong();
+                Collection<Object> collection = tag == SET ? new LinkedHashSet<>(size * 4 / 3 + 1) : new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    collection.add(read(in));
+                }
+                return collection;
+            case MAP:
+                int entries = (int) in.readVarLong();
+                Map<Object, Object> map = new LinkedHashMap<>(entries * 4 / 3 + 1);
+                for (int i = 0; i < entries; i++) {
+                    map.put(read(in), read(in));
+                }
+                return map;
+            case OBJECT:
+                String className = new String(in.readBytes(), StandardCharsets.UTF_8);
+                if (!isTrusted(className)) {
+                    throw new IllegalArgumentException("类型不在可信包中，拒绝解码 " + className);
+                }
+                try {
+                    return objectMapper.readValue(in.readBytes(), Class.forName(className, false, getClass().getClassLoader()));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("找不到类型 " + className, e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                throw new IllegalArgumentException("未知的类型标记 " + tag);
+        }
+    }
+
+    private boolean isTrusted(String className) {
+        for (String trustedPackage : trustedPackages) {
+            if (className.startsWith(trustedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long zigzag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static long unzigzag(long n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLengthPrefixed(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte read() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("数据不完整");
+            }
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint过长");
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarLong();
+            if (length < 0 || position + length > bytes.length) {
+                throw new IllegalArgumentException("数据不完整");
+            }
+            byte[] result = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.iot.xust.redistest.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 17:20 2026/10/18  2026
+ * @Description: 压缩包装，编码后的字节超过阈值时压缩，压缩后的格式为
+ * [0x0F][算法][varint原始长度][压缩数据]。
+ * 解码时按头部记录的算法解压，所以切换算法后旧数据仍然可读；不以0x0F开头的值直接交给被包装的编解码器。
+ * 被压缩的字符串不能按字节操作，RedisUtils的string.append/getRange/setRange/strlen遇到压缩的值会抛出异常，
+ * 需要这些操作的key应当保持在阈值以下或关闭压缩。统计通过{@link com.iot.xust.redistest.metrics.CompressionMetrics}发布到Micrometer
+ */
+public class CompressingValueCodec implements ValueCodec {
+
+    static final byte MAGIC = 0x0F;
+
+    private final ValueCodec delegate;
+
+    private final Algorithm algorithm;
+
+    private final int threshold;
+
+    private final CompressionStats stats = new CompressionStats();
+
+    /**
+     * @param delegate  被包装的编解码器
+     * @param algorithm 写入时使用的压缩算法
+     * @param threshold 编码后超过多少字节才压缩
+     */
+    public CompressingValueCodec(ValueCodec delegate, Algorithm algorithm, int threshold) {
+        this.delegate = delegate;
+        this.algorithm = algorithm;
+        this.threshold = threshold;
+    }
+
+    public CompressionStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] raw = delegate.encode(value);
+        if (raw.length <= threshold) {
+            return raw;
+        }
+        long start = System.nanoTime();
+        byte[] body = algorithm.compress(raw);
+        int headerLength = 2 + varIntLength(raw.length);
+        if (headerLength + body.length >= raw.length) {
+            stats.recordSkipped(System.nanoTime() - start);
+            return raw;
+        }
+        byte[] result = new byte[headerLength + body.length];
+        result[0] = MAGIC;
+        result[1] = algorithm.id;
+        int position = 2;
+        for (int n = raw.length; ; n >>>= 7) {
+            if ((n & ~0x7F) == 0) {
+                result[position++] = (byte) n;
+                break;
+            }
+            result[position++] = (byte) ((n & 0x7F) | 0x80);
+        }
+        System.arraycopy(body, 0, result, position, body.length);
+        stats.recordCompress(raw.length, result.length, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes.length < 3 || bytes[0] != MAGIC) {
+            return delegate.decode(bytes);
+        }
+        long start = System.nanoTime();
+        Algorithm used = Algorithm.of(bytes[1]);
+        int originalLength = 0;
+        int position = 2;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position++];
+            originalLength |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        byte[] raw = used.decompress(bytes, position, originalLength);
+        stats.recordDecompress(System.nanoTime() - start);
+        return delegate.decode(raw);
+    }
+
+    private static int varIntLength(int n) {
+        int length = 1;
+        while ((n & ~0x7F) != 0) {
+            n >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    public enum Algorithm {
+
+        DEFLATE((byte) 1) {
+            @Override
+            byte[] compress(byte[] raw) {
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+                try {
+                    deflater.setInput(raw);
+                    deflater.finish();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+                    byte[] buffer = new byte[8192];
+                    while (!deflater.finished()) {
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                    return out.toByteArray();
+                } finally {
+                    deflater.end();
+                }
+            }
+
+            @Override
+            byte[] decompress(byte[] bytes, int offset, int originalLength) {
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(bytes, offset, bytes.length - offset);
+                    byte[] raw = new byte[originalLength];
+                    int length = 0;
+                    while (length < originalLength && !inflater.finished()) {
+                        int n = inflater.inflate(raw, length, originalLength - length);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        length += n;
+                    }
+                    if (length != originalLength) {
+                        throw new IllegalArgumentException("压缩数据不完整");
+                    }
+                    return raw;
+                } catch (DataFormatException e) {
+                    throw new IllegalArgumentException("压缩数据已损坏", e);
+                } finally {
+                    inflater.end();
+                }
+            }
+        },
+
+        LZ4((byte) 2) {
+            private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+
+            private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+            @Override
+            byte[] compress(byte[] raw) {
+                byte[] buffer = new byte[compressor.maxCompressedLength(raw.length)];
+                int length = compressor.compress(raw, 0, raw.length, buffer, 0, buffer.length);
+                return Arrays.copyOf(buffer, length);
+            }
+
+            @Override
+            byte[] decompress(byte[] bytes, int offset, int originalLength) {
+                byte[] raw = new byte[originalLength];
+                decompressor.decompress(bytes, offset, raw, 0, originalLength);
+                return raw;
+            }
+        };
+
+        private final byte id;
+
+        Algorithm(byte id) {
+            this.id = id;
+        }
+
+        abstract byte[] compress(byte[] raw);
+
+        abstract byte[] decompress(byte[] bytes, int offset, int originalLength);
+
+        static Algorithm of(byte id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id == id) {
+                    return algorithm;
+                }
+            }
+            throw new IllegalArgumentException("未知的压缩算法 " + id);
+        }
+    }
+
+    /**
+     * 压缩统计，每次编解码调用都会累加
+     */
+    public static class CompressionStats {
+
+        private final LongAdder compressed = new LongAdder();
+
+        private final LongAdder skipped = new LongAdder();
+
+        private final LongAdder decompressed = new LongAdder();
+
+        private final LongAdder bytesIn = new LongAdder();
+
+        private final LongAdder bytesOut = new LongAdder();
+
+        private final LongAdder compressNanos = new LongAdder();
+
+        private final LongAdder decompressNanos = new LongAdder();
+
+        void recordCompress(int in, int out, long nanos) {
+            compressed.increment();
+            bytesIn.add(in);
+            bytesOut.add(out);
+            compressNanos.add(nanos);
+        }
+
+        void recordSkipped(long nanos) {
+            skipped.increment();
+            compressNanos.add(nanos);
+        }
+
+        void recordDecompress(long nanos) {
+            decompressed.increment();
+            decompressNanos.add(nanos);
+        }
+
+        /**
+         * @return 被压缩的值数量
+         */
+        public long getCompressedCount() {
+            return compressed.sum();
+        }
+
+        /**
+         * @return 超过阈值但压缩后没有变小、按原样写入的值数量
+         */
+        public long getSkippedCount() {
+            return skipped.sum();
+        }
+
+        public long getDecompressedCount() {
+            return decompressed.sum();
+        }
+
+        /**
+         * @return 压缩后字节数 / 压缩前字节数，没有压缩过时为1
+         */
+        public double getCompressionRatio() {
+            long in = bytesIn.sum();
+            return in == 0 ? 1.0 : (double) bytesOut.sum() / in;
+        }
+
+        public long getBytesSaved() {
+            return bytesIn.sum() - bytesOut.sum();
+        }
+
+        public long getCompressNanos() {
+            return compressNanos.sum();
+        }
+
+        public long getDecompressNanos() {
+            return decompressNanos.sum();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.iot.xust.redistest.codec;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 17:20 2026/10/18  2026
+ * @Description: redis.codec=json时使用：按原来的Jackson格式写入，读取时同时认识binary格式。
+ * 先让所有实例以json运行这个版本，之后再切到binary，滚动发布期间旧实例写的json和新实例写的binary都能被读到
+ */
+public class DualReadValueCodec implements ValueCodec {
+
+    private final ValueCodec json;
+
+    private final ValueCodec binary;
+
+    /**
+     * @param json   写入以及默认读取使用的Jackson格式
+     * @param binary 读取binary格式使用的编解码器
+     */
+    public DualReadValueCodec(ValueCodec json, ValueCodec binary) {
+        this.json = json;
+        this.binary = binary;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return json.encode(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        //JSON不会以控制字符开头，这样的值一定是binary的类型标记
+        if (bytes.length > 0 && bytes[0] >= 0 && bytes[0] <= BinaryValueCodec.MAX_RESERVED) {
+            return binary.decode(bytes);
+        }
+        try {
+            return json.decode(bytes);
+        } catch (RuntimeException e) {
+            //binary格式中不带标记的原样字符串
+            return binary.decode(bytes);
+        }
+    }
+}
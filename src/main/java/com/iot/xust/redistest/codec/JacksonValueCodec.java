@@ -0,0 +1,142 @@
+package com.iot.xust.redistest.codec;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.impl.ClassNameIdResolver;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 16:45 2026/10/18  2026
+ * @Description: 原来的格式：开启了NON_FINAL默认类型的Jackson JSON，每个非final类型的值都带有完整类名。
+ * 从Redis读到的类名只允许java.lang、java.util、java.util.concurrent、java.math、java.time以及可信包下的类，
+ * 其他类名不会被加载，避免反序列化任意类
+ */
+public class JacksonValueCodec implements ValueCodec {
+
+    /**
+     * 总是允许的JDK包，不含子包
+     */
+    private static final Set<String> JDK_PACKAGES = new HashSet<>(Arrays.asList(
+            "java.lang", "java.util", "java.util.concurrent", "java.math", "java.time"));
+
+    private final Jackson2JsonRedisSerializer<Object> serializer;
+
+    /**
+     * 可信包，以'.'结尾
+     */
+    private final List<String> trustedPackages = new ArrayList<>();
+
+    /**
+     * 只允许JDK的常用类型
+     */
+    public JacksonValueCodec() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * @param trustedPackages 除JDK常用类型外允许读取的类所在的包（包括子包）
+     */
+    public JacksonValueCodec(Collection<String> trustedPackages) {
+        for (String trustedPackage : trustedPackages) {
+            String name = trustedPackage.trim();
+            if (!name.isEmpty()) {
+                this.trustedPackages.add(name.endsWith(".") ? name : name + ".");
+            }
+        }
+        serializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        //与enableDefaultTyping(NON_FINAL)写出的格式相同，只是读取时校验类名
+        om.setDefaultTyping(new TrustedTypeResolverBuilder(this)
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.WRAPPER_ARRAY));
+        serializer.setObjectMapper(om);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return serializer.serialize(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * @param id Jackson的类型id：类名、数组的[Lxxx;形式或带泛型参数的规范名
+     * @return id中出现的每个类都被允许
+     */
+    boolean isTrusted(String id) {
+        for (String token : id.split("[<>,\\s]+")) {
+            if (!token.isEmpty() && !isTrustedClass(token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isTrustedClass(String name) {
+        int dims = 0;
+        while (dims < name.length() && name.charAt(dims) == '[') {
+            dims++;
+        }
+        if (dims > 0) {
+            if (name.length() == dims + 1) {
+                //基本类型数组
+                return true;
+            }
+            if (name.charAt(dims) != 'L' || !name.endsWith(";")) {
+                return false;
+            }
+            name = name.substring(dims + 1, name.length() - 1);
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && JDK_PACKAGES.contains(name.substring(0, dot))) {
+            return true;
+        }
+        for (String trustedPackage : trustedPackages) {
+            if (name.startsWith(trustedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class TrustedTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient JacksonValueCodec codec;
+
+        TrustedTypeResolverBuilder(JacksonValueCodec codec) {
+            super(ObjectMapper.DefaultTyping.NON_FINAL);
+            this.codec = codec;
+        }
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config, JavaType baseType, Collection<NamedType> subtypes,
+                                            boolean forSer, boolean forDeser) {
+            return new ClassNameIdResolver(baseType, config.getTypeFactory()) {
+                @Override
+                public JavaType typeFromId(DatabindContext context, String id) throws IOException {
+                    if (!codec.isTrusted(id)) {
+                        throw new IllegalArgumentException("类型不在可信包中，拒绝读取 " + id);
+                    }
+                    return super.typeFromId(context, id);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.iot.xust.redistest.codec;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 16:40 2026/10/18  2026
+ * @Description: 值的编解码SPI，RedisConfig把选中的实现包装成value、hash key、hash value的序列化器
+ */
+public interface ValueCodec {
+
+    /**
+     * 把值编码成写入Redis的字节
+     *
+     * @param value 不为null
+     * @return
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 把从Redis读到的字节解码成值
+     *
+     * @param bytes 不为null
+     * @return
+     */
+    Object decode(byte[] bytes);
+}
@@ -0,0 +1,42 @@
+package com.iot.xust.redistest.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 16:42 2026/10/18  2026
+ * @Description: 把ValueCodec适配成RedisTemplate使用的序列化器
+ */
+public class ValueCodecRedisSerializer implements RedisSerializer<Object> {
+
+    private final ValueCodec codec;
+
+    public ValueCodecRedisSerializer(ValueCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            return codec.encode(value);
+        } catch (RuntimeException e) {
+            throw new SerializationException("无法编码 " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return codec.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("无法解码长度为" + bytes.length + "的值", e);
+        }
+    }
+}
@@ -1,14 +1,42 @@
 package com.iot.xust.redistest.config;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.xust.redistest.codec.BinaryValueCodec;
+import com.iot.xust.redistest.codec.CompressingValueCodec;
+import com.iot.xust.redistest.codec.DualReadValueCodec;
+import com.iot.xust.redistest.codec.JacksonValueCodec;
+import com.iot.xust.redistest.codec.ValueCodec;
+import com.iot.xust.redistest.codec.ValueCodecRedisSerializer;
+import com.iot.xust.redistest.metrics.CompressionMetrics;
+import com.iot.xust.redistest.metrics.InstrumentedRedisConnectionFactory;
+import com.iot.xust.redistest.metrics.RedisCommandMetrics;
+import com.iot.xust.redistest.util.CounterAggregator;
+import com.iot.xust.redistest.util.NearCache;
+import com.iot.xust.redistest.util.ReadCoalescer;
+import com.iot.xust.redistest.util.RedisUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.resource.ClientResources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * @Author: HuangXin
@@ -20,28 +48,199 @@ public class RedisConfig {
 
 
     /***
-     * 自定义的redisTemplate
+     * 自定义的redisTemplate，存在MeterRegistry且redis.metrics.enabled不为false时统计每条命令
      * @param factory
+     * @param valueCodec
+     * @param meterRegistry
+     * @param metricsEnabled
+     * @param histogram 是否发布耗时的百分位直方图
+     * @param maxKeyPatterns key标签最多区分的key模式数量，小于等于0时不区分key
      * @return
      */
     @Bean
-    public RedisTemplate<Object, String> redisTemplate(RedisConnectionFactory factory) {
+    public RedisTemplate<Object, String> redisTemplate(RedisConnectionFactory factory, ValueCodec valueCodec,
+                                                       ObjectProvider<MeterRegistry> meterRegistry,
+                                                       @Value("${redis.metrics.enabled:true}") boolean metricsEnabled,
+                                                       @Value("${redis.metrics.histogram:true}") boolean histogram,
+                                                       @Value("${redis.metrics.max-key-patterns:100}") int maxKeyPatterns) {
         RedisTemplate<Object, String> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(factory);
-        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
-        ObjectMapper om = new ObjectMapper();
-        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
-        jackson2JsonRedisSerializer.setObjectMapper(om);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (metricsEnabled && Objects.nonNull(registry)) {
+            redisTemplate.setConnectionFactory(new InstrumentedRedisConnectionFactory(factory, new RedisCommandMetrics(registry, histogram, maxKeyPatterns)));
+        } else {
+            redisTemplate.setConnectionFactory(factory);
+        }
+        ValueCodecRedisSerializer valueSerializer = new ValueCodecRedisSerializer(valueCodec);
         //默认的序列化方式
-        redisTemplate.setDefaultSerializer(jackson2JsonRedisSerializer);
+        redisTemplate.setDefaultSerializer(valueSerializer);
         redisTemplate.setKeySerializer(RedisSerializer.string());
-        redisTemplate.setValueSerializer(jackson2JsonRedisSerializer);
-        redisTemplate.setHashKeySerializer(jackson2JsonRedisSerializer);
-        redisTemplate.setHashValueSerializer(jackson2JsonRedisSerializer);
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashKeySerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         redisTemplate.afterPropertiesSet();
         return redisTemplate;
     }
 
+    /***
+     * ReactiveRedisUtils使用的响应式redisTemplate，与redisTemplate使用相同的序列化方式，
+     * 同名bean会替代Spring Boot默认的JDK序列化的reactiveRedisTemplate
+     * @param factory
+     * @param valueCodec
+     * @return
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory factory, ValueCodec valueCodec) {
+        ValueCodecRedisSerializer valueSerializer = new ValueCodecRedisSerializer(valueCodec);
+        RedisSerializationContext<String, Object> context = RedisSerializationContext.<String, Object>newSerializationContext(valueSerializer)
+                .key(RedisSerializer.string())
+                .value(valueSerializer)
+                .hashKey(valueSerializer)
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+
+    /***
+     * 值的编解码方式，由redis.codec选择：
+     * json(默认)按原来的Jackson默认类型格式写入，同时能读取binary数据；binary为紧凑的二进制格式，同时能读取旧的json数据。
+     * 两种格式读到的类名都只允许JDK常用类型和trustedPackages下的类
+     * 开启redis.compression.enabled后，编码结果超过redis.compression.threshold字节时用redis.compression.algorithm(lz4/deflate)压缩
+     * @param codec
+     * @param trustedPackages 允许编解码任意对象的包，逗号分隔
+     * @param compression
+     * @param algorithm
+     * @param threshold
+     * @return
+     */
+    @Bean
+    public ValueCodec valueCodec(@Value("${redis.codec:json}") String codec,
+                                 @Value("${redis.trusted-packages:com.iot.xust.redistest}") String[] trustedPackages,
+                                 @Value("${redis.compression.enabled:false}") boolean compression,
+                                 @Value("${redis.compression.algorithm:lz4}") String algorithm,
+                                 @Value("${redis.compression.threshold:1024}") int threshold) {
+        ValueCodec valueCodec;
+        JacksonValueCodec json = new JacksonValueCodec(Arrays.asList(trustedPackages));
+        BinaryValueCodec binary = new BinaryValueCodec(json, Arrays.asList(trustedPackages));
+        if ("json".equalsIgnoreCase(codec)) {
+            valueCodec = new DualReadValueCodec(json, binary);
+        } else if ("binary".equalsIgnoreCase(codec)) {
+            valueCodec = binary;
+        } else {
+            throw new IllegalArgumentException("不支持的redis.codec: " + codec);
+        }
+        if (compression) {
+            CompressingValueCodec.Algorithm selected = CompressingValueCodec.Algorithm.valueOf(algorithm.toUpperCase());
+            return new CompressingValueCodec(valueCodec, selected, threshold);
+        }
+        return valueCodec;
+    }
+
+    /***
+     * 开启压缩时把压缩统计发布到Micrometer，由Spring Boot绑定到所有MeterRegistry
+     * @param valueCodec
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "redis.compression", name = "enabled", havingValue = "true")
+    public MeterBinder compressionMetrics(ValueCodec valueCodec) {
+        if (valueCodec instanceof CompressingValueCodec) {
+            return new CompressionMetrics(((CompressingValueCodec) valueCodec).getStats());
+        }
+        return registry -> {
+        };
+    }
+
+    /***
+     * AsyncRedisUtils使用的Lettuce客户端，连接参数取自spring.redis，与连接池共用Lettuce的线程资源
+     * @param properties
+     * @param clientResources
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    public RedisClient asyncRedisClient(RedisProperties properties, ClientResources clientResources) {
+        RedisURI.Builder builder = RedisURI.Builder.redis(properties.getHost(), properties.getPort())
+                .withDatabase(properties.getDatabase())
+                .withSsl(properties.isSsl());
+        if (StringUtils.hasText(properties.getPassword())) {
+            builder.withPassword(properties.getPassword());
+        }
+        if (Objects.nonNull(properties.getTimeout())) {
+            builder.withTimeout(properties.getTimeout());
+        }
+        return RedisClient.create(clientResources, builder.build());
+    }
+
+    /***
+     * string.get和hash.hGet的近端缓存，配置redis.near-cache.enabled=true时启用
+     * @param maximumSize 最多缓存的条目数
+     * @param ttl 条目在本地的最长存活时间（毫秒）
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "redis.near-cache", name = "enabled", havingValue = "true")
+    public NearCache nearCache(@Value("${redis.near-cache.maximum-size:10000}") int maximumSize,
+                               @Value("${redis.near-cache.ttl:60000}") long ttl) {
+        return new NearCache(maximumSize, ttl);
+    }
+
+    /***
+     * 计数器的写后聚合，配置redis.counter.enabled=true时启用，关闭时把剩余的增量写入Redis
+     * @param redisUtils
+     * @param flushInterval 两次批量写入的间隔（毫秒）
+     * @param flushThreshold 待写入的计数器达到这个数量时提前写入
+     * @param maxCounters 本地最多保存的计数器数量
+     * @param overflow 达到maxCounters后新计数器的处理方式：write-through直接写入，drop丢弃
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "redis.counter", name = "enabled", havingValue = "true")
+    public CounterAggregator counterAggregator(RedisUtils redisUtils,
+                                               @Value("${redis.counter.flush-interval:200}") long flushInterval,
+                                               @Value("${redis.counter.flush-threshold:1000}") int flushThreshold,
+                                               @Value("${redis.counter.max-counters:100000}") int maxCounters,
+                                               @Value("${redis.counter.overflow:write-through}") String overflow) {
+        CounterAggregator.Overflow selected = CounterAggregator.Overflow.valueOf(overflow.replace('-', '_').toUpperCase());
+        return new CounterAggregator(redisUtils, flushInterval, flushThreshold, maxCounters, selected);
+    }
+
+    /***
+     * 把并发的string.get/hash.hGet合并成MGET/HMGET，配置redis.coalesce.enabled=true时启用，
+     * 适合大量线程争抢少量连接的场景，没有并发读取时不会额外等待
+     * @param windowMicros 发起者等待其他读取加入的最长时间（微秒）
+     * @param maxBatchSize 一次MGET/HMGET最多携带的key数量
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "redis.coalesce", name = "enabled", havingValue = "true")
+    public ReadCoalescer readCoalescer(@Value("${redis.coalesce.window-micros:200}") long windowMicros,
+                                       @Value("${redis.coalesce.max-batch-size:64}") int maxBatchSize) {
+        return new ReadCoalescer(windowMicros, maxBatchSize);
+    }
+
+    /***
+     * 订阅keyspace通知，其他节点写入某个key时让近端缓存中的副本失效。
+     * 需要Redis服务端开启通知，例如 notify-keyspace-events KA
+     * @param factory
+     * @param nearCache
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "redis.near-cache", name = "enabled", havingValue = "true")
+    public RedisMessageListenerContainer nearCacheInvalidationContainer(RedisConnectionFactory factory, NearCache nearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) -> {
+            //频道的格式为 __keyspace@<db>__:<key>
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            int index = channel.indexOf("__:");
+            if (index > 0) {
+                nearCache.invalidate(channel.substring(index + 3));
+            }
+        }, new PatternTopic("__keyspace@*__:*"));
+        //订阅出错期间可能漏掉通知，整体清空
+        container.setErrorHandler(e -> nearCache.invalidateAll());
+        return container;
+    }
+
 
 }
@@ -0,0 +1,56 @@
+package com.iot.xust.redistest.metrics;
+
+import com.iot.xust.redistest.codec.CompressingValueCodec;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 00:10 2026/10/19  2026
+ * @Description: 把{@link CompressingValueCodec.CompressionStats}发布为Meter：
+ * redis.utils.compression.ratio(压缩后/压缩前)、redis.utils.compression.bytes.saved、
+ * redis.utils.compression.values(按result区分compressed/skipped)、redis.utils.compression.time(按operation区分compress/decompress)。
+ * 统计值在采集时读取，编解码路径上没有额外开销
+ */
+public class CompressionMetrics implements MeterBinder {
+
+    private final CompressingValueCodec.CompressionStats stats;
+
+    public CompressionMetrics(CompressingValueCodec.CompressionStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("redis.utils.compression.ratio", stats, CompressingValueCodec.CompressionStats::getCompressionRatio)
+                .description("被压缩的值压缩后与压缩前的字节数之比")
+                .register(registry);
+        FunctionCounter.builder("redis.utils.compression.bytes.saved", stats, CompressingValueCodec.CompressionStats::getBytesSaved)
+                .description("压缩节省的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("redis.utils.compression.values", stats, CompressingValueCodec.CompressionStats::getCompressedCount)
+                .description("超过阈值的值")
+                .tags("result", "compressed")
+                .register(registry);
+        FunctionCounter.builder("redis.utils.compression.values", stats, CompressingValueCodec.CompressionStats::getSkippedCount)
+                .description("超过阈值的值")
+                .tags("result", "skipped")
+                .register(registry);
+        FunctionTimer.builder("redis.utils.compression.time", stats,
+                s -> s.getCompressedCount() + s.getSkippedCount(), CompressingValueCodec.CompressionStats::getCompressNanos, TimeUnit.NANOSECONDS)
+                .description("压缩耗时")
+                .tags("operation", "compress")
+                .register(registry);
+        FunctionTimer.builder("redis.utils.compression.time", stats,
+                CompressingValueCodec.CompressionStats::getDecompressedCount, CompressingValueCodec.CompressionStats::getDecompressNanos, TimeUnit.NANOSECONDS)
+                .description("解压耗时")
+                .tags("operation", "decompress")
+                .register(registry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.iot.xust.redistest.metrics;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 20:45 2026/10/18  2026
+ * @Description: 包装真正的连接工厂，取得的每个连接都经过{@link RedisCommandMetrics}统计
+ */
+public class InstrumentedRedisConnectionFactory implements RedisConnectionFactory {
+
+    private final RedisConnectionFactory delegate;
+
+    private final RedisCommandMetrics metrics;
+
+    public InstrumentedRedisConnectionFactory(RedisConnectionFactory delegate, RedisCommandMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return 这个工厂使用的统计，RedisUtils用它为组合操作整体计时
+     */
+    public RedisCommandMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return metrics.instrument(delegate.getConnection());
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return delegate.getClusterConnection();
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+}
@@ -0,0 +1,499 @@
+package com.iot.xust.redistest.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.redis.connection.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 20:40 2026/10/18  2026
+ * @Description: 在连接层统计RedisUtils发出的每条命令。
+ * RedisUtils的string/list/hash/set/zset不是Spring bean，无法用AOP拦截，所以这里统计的是它们最终落到RedisConnection上的命令，
+ * 标签type是命令所属的Spring Data Redis命令接口（RedisSetCommands对应set等），不是调用它的RedisUtils内部类，
+ * 例如zset.sDiff发出的SDIFF标记为type=set；command是连接上的方法名；key是key的模式（见{@link #keyPattern(byte[])}）：
+ * redis.utils.commands(耗时直方图)、redis.utils.errors、redis.utils.misses(返回null)、redis.utils.bytes.out/in(key和value的字节数)。
+ * 由多条命令组成的RedisUtils操作（getOrLoad等）通过{@link #time(String, String, Supplier)}另外作为一个整体统计到redis.utils.operations，
+ * 标签facade和method与RedisUtils的内部类和方法名一致。
+ * 每个连接方法所属的分组在构造时就已算好；key模式按key的字节直接算出64位哈希，在分组自己的小缓存中命中时不创建任何对象，
+ * 只有第一次遇到的模式才解码key并注册Meter。剩下的开销是JDK代理的一次反射调用，
+ * 它是按命令区分统计的代价，不需要时用redis.metrics.enabled=false关闭
+ */
+public class RedisCommandMetrics {
+
+    /**
+     * 命令接口与type标签的对应关系
+     */
+    private static final Map<Class<?>, String> TYPES = new LinkedHashMap<>();
+
+    static {
+        TYPES.put(RedisKeyCommands.class, "key");
+        TYPES.put(RedisStringCommands.class, "string");
+        TYPES.put(RedisListCommands.class, "list");
+        TYPES.put(RedisHashCommands.class, "hash");
+        TYPES.put(RedisSetCommands.class, "set");
+        TYPES.put(RedisZSetCommands.class, "zset");
+        TYPES.put(RedisScriptingCommands.class, "script");
+        TYPES.put(RedisGeoCommands.class, "geo");
+        TYPES.put(RedisHyperLogLogCommands.class, "hyperloglog");
+        TYPES.put(RedisTxCommands.class, "tx");
+        TYPES.put(RedisPubSubCommands.class, "pubsub");
+        TYPES.put(RedisServerCommands.class, "server");
+        TYPES.put(RedisConnectionCommands.class, "connection");
+    }
+
+    /**
+     * 没有key的命令（或关闭了key模式统计时）的key标签值
+     */
+    static final String NO_KEY = "none";
+
+    /**
+     * key模式数量超过上限后，新出现的模式统一使用的key标签值
+     */
+    static final String OTHER_KEYS = "other";
+
+    /**
+     * 每个分组的key模式缓存的槽数，必须是2的幂
+     */
+    private static final int PATTERN_CACHE_SIZE = 64;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * key中超过这个长度的段视为变量
+     */
+    private static final int MAX_SEGMENT_LENGTH = 32;
+
+    /**
+     * 只解析key的前这么多字节
+     */
+    private static final int MAX_KEY_BYTES = 128;
+
+    private final MeterRegistry registry;
+
+    private final boolean histogram;
+
+    private final int maxKeyPatterns;
+
+    private final Set<String> keyPatterns = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 构造后只读，RedisConnection上不是命令的方法不在其中
+     */
+    private final Map<Method, CommandGroup> groups = new HashMap<>();
+
+    /**
+     * facade -&gt; method -&gt; exception -&gt; Timer
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, Timer>>> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry
+     * @param histogram      是否发布耗时的百分位直方图
+     * @param maxKeyPatterns key标签最多区分的key模式数量，小于等于0时不区分key
+     */
+    public RedisCommandMetrics(MeterRegistry registry, boolean histogram, int maxKeyPatterns) {
+        this.registry = registry;
+        this.histogram = histogram;
+        this.maxKeyPatterns = maxKeyPatterns;
+        for (Method method : RedisConnection.class.getMethods()) {
+            CommandGroup group = newGroup(method);
+            if (Objects.nonNull(group)) {
+                groups.put(method, group);
+            }
+        }
+    }
+
+    /**
+     * @param connection
+     * @return 统计每条命令的连接代理
+     */
+    public RedisConnection instrument(RedisConnection connection) {
+        return (RedisConnection) Proxy.newProxyInstance(RedisConnection.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, new Handler(connection));
+    }
+
+    /**
+     * 把一个由多条命令组成的RedisUtils操作作为整体计时，记录到redis.utils.operations
+     *
+     * @param facade    RedisUtils的内部类，如string、hash
+     * @param method    RedisUtils的方法名
+     * @param operation
+     * @return operation的返回值
+     */
+    public <T> T time(String facade, String method, Supplier<T> operation) {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return operation.get();
+        } catch (RuntimeException | Error e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            operationTimer(facade, method, exception).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer operationTimer(String facade, String method, String exception) {
+        ConcurrentHashMap<String, ConcurrentHashMap<String, Timer>> methods = operations.get(facade);
+        if (Objects.isNull(methods)) {
+            methods = operations.computeIfAbsent(facade, f -> new ConcurrentHashMap<>());
+        }
+        ConcurrentHashMap<String, Timer> outcomes = methods.get(method);
+        if (Objects.isNull(outcomes)) {
+            outcomes = methods.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        }
+        Timer timer = outcomes.get(exception);
+        if (Objects.isNull(timer)) {
+            timer = outcomes.computeIfAbsent(exception, e -> timer("redis.utils.operations", "RedisUtils中由多条命令组成的操作耗时")
+                    .tags("facade", facade, "method", method, "exception", e)
+                    .register(registry));
+        }
+        return timer;
+    }
+
+    /**
+     * @return 不是命令的方法（close、isPipelined等）返回null
+     */
+    private static CommandGroup newGroup(Method method) {
+        String type = "closePipeline".equals(method.getName()) ? "pipeline" : type(method);
+        if (Objects.isNull(type)) {
+            return null;
+        }
+        boolean keyed = !"pipeline".equals(type) && !"tx".equals(type) && !"pubsub".equals(type)
+                && !"server".equals(type) && !"connection".equals(type);
+        return new CommandGroup(type, method.getName(), keyed, "script".equals(type), method.getReturnType() != void.class);
+    }
+
+    private CommandMeters meters(CommandGroup group, Object[] args) {
+        byte[] key = group.keyed && maxKeyPatterns > 0 ? (group.script ? scriptKey(args) : key(args)) : null;
+        if (Objects.isNull(key)) {
+            return meters(group, NO_KEY);
+        }
+        long hash = patternHash(key);
+        int slot = (int) (hash ^ (hash >>> 32)) & (PATTERN_CACHE_SIZE - 1);
+        PatternMeters cached = group.cache[slot];
+        if (Objects.nonNull(cached) && cached.hash == hash) {
+            return cached.meters;
+        }
+        CommandMeters found = meters(group, keyPattern(key));
+        //槽被不同的模式争用时后来者覆盖，只会多走一次慢路径
+        group.cache[slot] = new PatternMeters(hash, found);
+        return found;
+    }
+
+    private CommandMeters meters(CommandGroup group, String key) {
+        CommandMeters found = group.meters.get(key);
+        if (Objects.nonNull(found)) {
+            return found;
+        }
+        return group.meters.computeIfAbsent(key, k -> register(group, k));
+    }
+
+    private CommandMeters register(CommandGroup group, String key) {
+        CommandMeters commandMeters = new CommandMeters();
+        commandMeters.timer = timer("redis.utils.commands", "RedisUtils发出的命令耗时")
+                .tags("type", group.type, "command", group.command, "key", key)
+                .register(registry);
+        commandMeters.errors = counter("redis.utils.errors", null, group, key);
+        commandMeters.misses = counter("redis.utils.misses", null, group, key);
+        commandMeters.bytesOut = counter("redis.utils.bytes.out", "bytes", group, key);
+        commandMeters.bytesIn = counter("redis.utils.bytes.in", "bytes", group, key);
+        return commandMeters;
+    }
+
+    private Timer.Builder timer(String name, String description) {
+        Timer.Builder timer = Timer.builder(name).description(description);
+        if (histogram) {
+            timer.publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(50)))
+                    .maximumExpectedValue(Duration.ofSeconds(10));
+        }
+        return timer;
+    }
+
+    private Counter counter(String name, String baseUnit, CommandGroup group, String key) {
+        return Counter.builder(name).baseUnit(baseUnit)
+                .tags("type", group.type, "command", group.command, "key", key)
+                .register(registry);
+    }
+
+    private static String type(Method method) {
+        for (Map.Entry<Class<?>, String> entry : TYPES.entrySet()) {
+            try {
+                entry.getKey().getMethod(method.getName(), method.getParameterTypes());
+                return entry.getValue();
+            } catch (NoSuchMethodException e) {
+                //不属于这个分组
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 命令的第一个key：第一个byte[]参数、byte[][]参数的第一个元素或Map参数的第一个key
+     */
+    private static byte[] key(Object[] args) {
+        if (Objects.isNull(args)) {
+            return null;
+        }
+        for (Object arg : args) {
+            if (arg instanceof byte[]) {
+                return (byte[]) arg;
+            }
+            if (arg instanceof byte[][]) {
+                byte[][] keys = (byte[][]) arg;
+                return keys.length == 0 ? null : keys[0];
+            }
+            if (arg instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) arg;
+                Object first = map.isEmpty() ? null : map.keySet().iterator().next();
+                return first instanceof byte[] ? (byte[]) first : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * eval/evalSha(script, returnType, numKeys, keysAndArgs...)的第一个key，第一个byte[]参数是脚本本身
+     */
+    private static byte[] scriptKey(Object[] args) {
+        if (Objects.isNull(args) || args.length < 4 || !(args[2] instanceof Integer) || !(args[3] instanceof byte[][])) {
+            return null;
+        }
+        byte[][] keysAndArgs = (byte[][]) args[3];
+        return (Integer) args[2] > 0 && keysAndArgs.length > 0 ? keysAndArgs[0] : null;
+    }
+
+    /**
+     * key模式的64位FNV-1a哈希，直接在key的字节上计算，与{@link #keyPattern(byte[])}得到的模式的UTF-8字节的哈希相同
+     */
+    static long patternHash(byte[] key) {
+        int length = Math.min(key.length, MAX_KEY_BYTES);
+        long hash = FNV_OFFSET;
+        int start = 0;
+        while (true) {
+            int end = segmentEnd(key, start, length);
+            if (variable(key, start, end)) {
+                hash = (hash ^ '*') * FNV_PRIME;
+            } else {
+                for (int i = start; i < end; i++) {
+                    hash = (hash ^ (key[i] & 0xFF)) * FNV_PRIME;
+                }
+            }
+            if (end >= length) {
+                return hash;
+            }
+            hash = (hash ^ ':') * FNV_PRIME;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 把key归纳成模式：按':'分段，含数字0-9或长度超过32字节的段替换为'*'，如user:1001:profile归纳为user:*:profile。
+     * 不同模式的数量超过上限后新模式都记为other，避免标签基数无限增长
+     *
+     * @param key
+     * @return
+     */
+    String keyPattern(byte[] key) {
+        int length = Math.min(key.length, MAX_KEY_BYTES);
+        StringBuilder pattern = new StringBuilder(length);
+        int start = 0;
+        while (true) {
+            int end = segmentEnd(key, start, length);
+            pattern.append(variable(key, start, end) ? "*" : new String(key, start, end - start, StandardCharsets.UTF_8));
+            if (end >= length) {
+                break;
+            }
+            pattern.append(':');
+            start = end + 1;
+        }
+        String result = pattern.toString();
+        if (keyPatterns.contains(result)) {
+            return result;
+        }
+        if (keyPatterns.size() >= maxKeyPatterns) {
+            return OTHER_KEYS;
+        }
+        keyPatterns.add(result);
+        return result;
+    }
+
+    private static int segmentEnd(byte[] key, int start, int length) {
+        int end = start;
+        while (end < length && key[end] != ':') {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean variable(byte[] key, int start, int end) {
+        if (end - start > MAX_SEGMENT_LENGTH) {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            if (key[i] >= '0' && key[i] <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 估算参数或结果中key和value的字节数，只统计byte[]及其数组、集合和Map
+     */
+    static long payloadSize(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        long size = 0L;
+        if (value instanceof byte[][]) {
+            for (byte[] bytes : (byte[][]) value) {
+                size += Objects.isNull(bytes) ? 0 : bytes.length;
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                size += payloadSize(element);
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += payloadSize(entry.getKey()) + payloadSize(entry.getValue());
+            }
+        } else if (value instanceof RedisZSetCommands.Tuple) {
+            size += payloadSize(((RedisZSetCommands.Tuple) value).getValue());
+        }
+        return size;
+    }
+
+    /**
+     * 同一个连接方法的所有key模式的Meter
+     */
+    private static final class CommandGroup {
+
+        final String type;
+
+        final String command;
+
+        final boolean keyed;
+
+        /**
+         * eval/evalSha，第一个byte[]参数是脚本而不是key
+         */
+        final boolean script;
+
+        final boolean returnsValue;
+
+        final ConcurrentHashMap<String, CommandMeters> meters = new ConcurrentHashMap<>();
+
+        /**
+         * 按{@link #patternHash(byte[])}直接映射的缓存
+         */
+        final PatternMeters[] cache = new PatternMeters[PATTERN_CACHE_SIZE];
+
+        CommandGroup(String type, String command, boolean keyed, boolean script, boolean returnsValue) {
+            this.type = type;
+            this.command = command;
+            this.keyed = keyed;
+            this.script = script;
+            this.returnsValue = returnsValue;
+        }
+    }
+
+    private static final class PatternMeters {
+
+        final long hash;
+
+        final CommandMeters meters;
+
+        PatternMeters(long hash, CommandMeters meters) {
+            this.hash = hash;
+            this.meters = meters;
+        }
+    }
+
+    private static final class CommandMeters {
+
+        Timer timer;
+
+        Counter errors;
+
+        Counter misses;
+
+        Counter bytesOut;
+
+        Counter bytesIn;
+    }
+
+    private final class Handler implements InvocationHandler {
+
+        private final RedisConnection delegate;
+
+        Handler(RedisConnection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            CommandGroup group = groups.get(method);
+            if (Objects.isNull(group)) {
+                return call(method, args);
+            }
+            CommandMeters commandMeters = meters(group, args);
+            if (Objects.nonNull(args)) {
+                long out = 0L;
+                for (Object arg : args) {
+                    out += payloadSize(arg);
+                }
+                commandMeters.bytesOut.increment(out);
+            }
+            //管道和事务中的命令只入队，耗时和返回值没有意义，由closePipeline/exec统计
+            if (delegate.isPipelined() || delegate.isQueueing()) {
+                return call(method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = call(method, args);
+                if (Objects.isNull(result)) {
+                    if (group.returnsValue) {
+                        commandMeters.misses.increment();
+                    }
+                } else {
+                    commandMeters.bytesIn.increment(payloadSize(result));
+                }
+                return result;
+            } catch (Throwable e) {
+                commandMeters.errors.increment();
+                throw e;
+            } finally {
+                commandMeters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,761 @@
+package com.iot.xust.redistest.util;
+
+import com.iot.xust.redistest.codec.ValueCodec;
+import com.iot.xust.redistest.codec.ValueCodecRedisSerializer;
+import io.lettuce.core.*;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 17:45 2026/10/18  2026
+ * @Description: RedisUtils的异步版本，所有方法立即返回CompletableFuture。
+ * 底层是少量多路复用的Lettuce连接，命令按轮询分配到各个连接上，不占用连接池也不阻塞调用线程。
+ * key和value的编码与RedisUtils一致，两者写入的数据可以互相读取
+ */
+@Component
+public class AsyncRedisUtils {
+
+    private final RedisClient redisClient;
+
+    private final ValueCodecRedisSerializer serializer;
+
+    private final NearCache nearCache;
+
+    private final int connectionCount;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<StatefulRedisConnection<byte[], byte[]>> connections;
+
+    public final string string = new string();
+
+    public final list list = new list();
+
+    public final hash hash = new hash();
+
+    public final set set = new set();
+
+    public final zset zset = new zset();
+
+    /**
+     * @param redisClient     RedisConfig中定义的客户端
+     * @param valueCodec      与RedisTemplate相同的值编码
+     * @param nearCache       近端缓存，未启用时为null，经由本类的写入同样会让它失效
+     * @param connectionCount 多路复用的连接数，由redis.async.connections配置
+     */
+    @Autowired
+    public AsyncRedisUtils(RedisClient redisClient, ValueCodec valueCodec,
+                           @Autowired(required = false) NearCache nearCache,
+                           @Value("${redis.async.connections:2}") int connectionCount) {
+        this.redisClient = redisClient;
+        this.serializer = new ValueCodecRedisSerializer(valueCodec);
+        this.nearCache = nearCache;
+        this.connectionCount = Math.max(1, connectionCount);
+    }
+
+    /**
+     * 第一次使用时才建立连接，Redis不可用时不影响应用启动
+     */
+    private RedisAsyncCommands<byte[], byte[]> commands() {
+        List<StatefulRedisConnection<byte[], byte[]>> current = connections;
+        if (Objects.isNull(current)) {
+            synchronized (this) {
+                current = connections;
+                if (Objects.isNull(current)) {
+                    current = new ArrayList<>(connectionCount);
+                    for (int i = 0; i < connectionCount; i++) {
+                        current.add(redisClient.connect(ByteArrayCodec.INSTANCE));
+                    }
+                    connections = current;
+                }
+            }
+        }
+        return current.get(Math.abs(next.getAndIncrement() % current.size())).async();
+    }
+
+    @PreDestroy
+    public void close() {
+        List<StatefulRedisConnection<byte[], byte[]>> current = connections;
+        if (Objects.nonNull(current)) {
+            current.forEach(StatefulRedisConnection::close);
+        }
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] rawKeys(String... keys) {
+        byte[][] raw = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            raw[i] = rawKey(keys[i]);
+        }
+        return raw;
+    }
+
+    private static byte[] rawNumber(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] rawValue(Object value) {
+        return serializer.serialize(value);
+    }
+
+    private byte[][] rawValues(Object... values) {
+        byte[][] raw = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            raw[i] = rawValue(values[i]);
+        }
+        return raw;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(byte[] raw) {
+        return (T) serializer.deserialize(raw);
+    }
+
+    private <T> List<T> values(Collection<byte[]> raw) {
+        if (Objects.isNull(raw)) {
+            return null;
+        }
+        List<T> result = new ArrayList<>(raw.size());
+        for (byte[] bytes : raw) {
+            result.add(value(bytes));
+        }
+        return result;
+    }
+
+    private <T> Set<T> valueSet(Collection<byte[]> raw) {
+        return Objects.isNull(raw) ? null : new LinkedHashSet<>(this.<T>values(raw));
+    }
+
+    private <T> List<T> keyValues(List<KeyValue<byte[], byte[]>> raw) {
+        List<T> result = new ArrayList<>(raw.size());
+        for (KeyValue<byte[], byte[]> keyValue : raw) {
+            result.add(keyValue.hasValue() ? value(keyValue.getValue()) : null);
+        }
+        return result;
+    }
+
+    private List<ScoredMember> scoredMembers(List<ScoredValue<byte[]>> raw) {
+        List<ScoredMember> result = new ArrayList<>(raw.size());
+        for (ScoredValue<byte[]> scoredValue : raw) {
+            result.add(new ScoredMember(value(scoredValue.getValue()), scoredValue.getScore()));
+        }
+        return result;
+    }
+
+    /**
+     * 发出命令；建立连接或编码参数失败时不抛出异常，而是返回失败的CompletableFuture
+     */
+    private <T> CompletableFuture<T> future(Function<RedisAsyncCommands<byte[], byte[]>, RedisFuture<T>> command) {
+        try {
+            return command.apply(commands()).toCompletableFuture();
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private <T> CompletableFuture<T> written(Function<RedisAsyncCommands<byte[], byte[]>, RedisFuture<T>> command, String... keys) {
+        return future(command).whenComplete((result, e) -> {
+            if (Objects.nonNull(nearCache)) {
+                for (String key : keys) {
+                    nearCache.invalidate(key);
+                }
+            }
+        });
+    }
+
+    private static <T> CompletableFuture<T> completed(T value) {
+        return CompletableFuture.completedFuture(value);
+    }
+
+    public CompletableFuture<Boolean> expire(String key, long timeout) {
+        if (Objects.isNull(key) || timeout <= 0) {
+            return completed(false);
+        }
+        return future(c -> c.expire(rawKey(key), timeout));
+    }
+
+    /***
+     * 查看某个key的过期时间
+     * @param key
+     * @return 过期时间 （秒/s），key不存在时为-2
+     */
+    public CompletableFuture<Long> ttl(String key) {
+        if (Objects.isNull(key)) {
+            return completed(-2L);
+        }
+        return future(c -> c.ttl(rawKey(key)));
+    }
+
+    public CompletableFuture<Boolean> exists(String key) {
+        if (Objects.isNull(key)) {
+            return completed(false);
+        }
+        return future(c -> c.exists(rawKey(key))).thenApply(count -> count > 0);
+    }
+
+    public CompletableFuture<Long> del(String... keys) {
+        if (Objects.isNull(keys) || keys.length == 0) {
+            return completed(0L);
+        }
+        return written(c -> c.del(rawKeys(keys)), keys);
+    }
+
+    public CompletableFuture<Long> unlink(String... keys) {
+        if (Objects.isNull(keys) || keys.length == 0) {
+            return completed(0L);
+        }
+        return written(c -> c.unlink(rawKeys(keys)), keys);
+    }
+
+    /**
+     * 操作string
+     */
+    public class string {
+
+        public CompletableFuture<Boolean> set(String key, String value) {
+            if (Objects.isNull(key) || Objects.isNull(value)) {
+                return completed(false);
+            }
+            return written(c -> c.set(rawKey(key), rawValue(value)), key).thenApply(Objects::nonNull);
+        }
+
+        /**
+         * @param command ex表示秒，px表示毫秒
+         */
+        public CompletableFuture<Boolean> set(String key, String value, String command, long timout) {
+            SetArgs args = expiry(command, timout);
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(args)) {
+                return completed(false);
+            }
+            return written(c -> c.set(rawKey(key), rawValue(value), args), key).thenApply(Objects::nonNull);
+        }
+
+        /**
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
+        public CompletableFuture<Boolean> set(String key, String value, boolean isKeyAbsent) {
+            if (Objects.isNull(key) || Objects.isNull(value)) {
+                return completed(false);
+            }
+            SetArgs args = isKeyAbsent ? SetArgs.Builder.nx() : SetArgs.Builder.xx();
+            return written(c -> c.set(rawKey(key), rawValue(value), args), key).thenApply(Objects::nonNull);
+        }
+
+        /**
+         * 一条SET命令同时带上NX|XX和EX|PX
+         *
+         * @param command     ex表示秒，px表示毫秒
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
+        public CompletableFuture<Boolean> set(String key, String value, String command, long timout, boolean isKeyAbsent) {
+            if (Objects.isNull(command)) {
+                return set(key, value, isKeyAbsent);
+            }
+            SetArgs expiry = expiry(command, timout);
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(expiry)) {
+                return completed(false);
+            }
+            SetArgs args = isKeyAbsent ? expiry.nx() : expiry.xx();
+            return written(c -> c.set(rawKey(key), rawValue(value), args), key).thenApply(Objects::nonNull);
+        }
+
+        /**
+         * @return command不是ex/px或timout不为正时返回null
+         */
+        private SetArgs expiry(String command, long timout) {
+            if (Objects.isNull(command) || timout <= 0) {
+                return null;
+            }
+            switch (command.toLowerCase()) {
+                case "ex":
+                    return SetArgs.Builder.ex(timout);
+                case "px":
+                    return SetArgs.Builder.px(timout);
+                default:
+                    return null;
+            }
+        }
+
+        public CompletableFuture<Boolean> mset(Map<String, String> map) {
+            if (Objects.isNull(map) || map.isEmpty()) {
+                return completed(false);
+            }
+            Map<byte[], byte[]> raw = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((k, v) -> raw.put(rawKey(k), rawValue(v)));
+            return written(c -> c.mset(raw), map.keySet().toArray(new String[0])).thenApply(Objects::nonNull);
+        }
+
+        public CompletableFuture<String> get(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.get(rawKey(key))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<List<String>> mget(Collection<String> keys) {
+            if (Objects.isNull(keys) || keys.isEmpty()) {
+                return completed(null);
+            }
+            return future(c -> c.mget(rawKeys(keys.toArray(new String[0])))).thenApply(AsyncRedisUtils.this::keyValues);
+        }
+
+        public CompletableFuture<String> getRange(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.<byte[]>eval(RedisUtils.TEXT_GETRANGE.getScriptAsString(), ScriptOutputType.VALUE,
+                    rawKeys(key), rawNumber(start), rawNumber(stop)))
+                    .thenApply(range -> Objects.isNull(range) ? null : new String(range, StandardCharsets.UTF_8));
+        }
+
+        public CompletableFuture<Long> strlen(String key) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return future(c -> c.<Long>eval(RedisUtils.TEXT_STRLEN.getScriptAsString(), ScriptOutputType.INTEGER, rawKeys(key)));
+        }
+
+        /**
+         * 与{@link RedisUtils.string#append(String, String)}一样追加原始的UTF-8字节，key不存在时同set
+         */
+        public CompletableFuture<Long> append(String key, String s) {
+            if (Objects.isNull(key) || Objects.isNull(s)) {
+                return completed(0L);
+            }
+            return written(c -> c.<Long>eval(RedisUtils.TEXT_APPEND.getScriptAsString(), ScriptOutputType.INTEGER,
+                    rawKeys(key), s.getBytes(StandardCharsets.UTF_8), rawValue(s)), key);
+        }
+
+        public CompletableFuture<Long> incr(String key) {
+            return incrBy(key, 1);
+        }
+
+        public CompletableFuture<Long> incrBy(String key, long increment) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return written(c -> c.incrby(rawKey(key), increment), key);
+        }
+
+        public CompletableFuture<Long> decr(String key) {
+            return decrBy(key, 1);
+        }
+
+        public CompletableFuture<Long> decrBy(String key, long decrement) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return written(c -> c.decrby(rawKey(key), decrement), key);
+        }
+
+        public CompletableFuture<Long> setRange(String key, long offset, String value) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            if (Objects.isNull(value)) {
+                return completed(0L);
+            }
+            return written(c -> c.<Long>eval(RedisUtils.TEXT_SETRANGE.getScriptAsString(), ScriptOutputType.INTEGER,
+                    rawKeys(key), rawNumber(offset), value.getBytes(StandardCharsets.UTF_8), rawValue(value)), key);
+        }
+    }
+
+    /**
+     * 操作list
+     */
+    public class list {
+
+        public CompletableFuture<Long> lPush(String key, String... value) {
+            if (Objects.isNull(key) || Objects.isNull(value) || value.length == 0) {
+                return completed(-1L);
+            }
+            return future(c -> c.lpush(rawKey(key), rawValues((Object[]) value)));
+        }
+
+        public CompletableFuture<Long> lPushX(String key, String value) {
+            if (Objects.isNull(key)) {
+                return completed(-1L);
+            }
+            return future(c -> c.lpushx(rawKey(key), rawValue(value)));
+        }
+
+        public CompletableFuture<Long> rPush(String key, String... value) {
+            if (Objects.isNull(key) || Objects.isNull(value) || value.length == 0) {
+                return completed(-1L);
+            }
+            return future(c -> c.rpush(rawKey(key), rawValues((Object[]) value)));
+        }
+
+        public CompletableFuture<String> lPop(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.lpop(rawKey(key))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<String> rPop(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.rpop(rawKey(key))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<List<String>> lRange(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.lrange(rawKey(key), start, stop)).thenApply(AsyncRedisUtils.this::values);
+        }
+
+        public CompletableFuture<String> rPopLPush(String srckey, String destKey) {
+            if (Objects.isNull(srckey) || Objects.isNull(destKey)) {
+                return completed(null);
+            }
+            return future(c -> c.rpoplpush(rawKey(srckey), rawKey(destKey))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<Long> llen(String key) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return future(c -> c.llen(rawKey(key)));
+        }
+
+        public CompletableFuture<Long> lRem(String key, long count, String value) {
+            if (Objects.isNull(key)) {
+                return completed(-1L);
+            }
+            return future(c -> c.lrem(rawKey(key), count, rawValue(value)));
+        }
+
+        public CompletableFuture<Boolean> lTrim(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return completed(false);
+            }
+            return future(c -> c.ltrim(rawKey(key), start, stop)).thenApply(Objects::nonNull);
+        }
+
+        public CompletableFuture<String> lIndex(String key, long index) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.lindex(rawKey(key), index)).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<Boolean> lSet(String key, long index, String value) {
+            if (Objects.isNull(key)) {
+                return completed(false);
+            }
+            return future(c -> c.lset(rawKey(key), index, rawValue(value))).thenApply(Objects::nonNull);
+        }
+    }
+
+    /**
+     * 操作hash
+     */
+    public class hash {
+
+        public CompletableFuture<Boolean> hSet(String key, String filed, String value) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || Objects.isNull(value)) {
+                return completed(false);
+            }
+            return written(c -> c.hset(rawKey(key), rawValue(filed), rawValue(value)), key).thenApply(Objects::nonNull);
+        }
+
+        public CompletableFuture<Boolean> hMSet(String key, Map<String, Object> map) {
+            if (Objects.isNull(key) || Objects.isNull(map) || map.isEmpty()) {
+                return completed(false);
+            }
+            Map<byte[], byte[]> raw = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+            map.forEach((k, v) -> raw.put(rawValue(k), rawValue(v)));
+            return written(c -> c.hmset(rawKey(key), raw), key).thenApply(Objects::nonNull);
+        }
+
+        public CompletableFuture<Boolean> hSetNX(String key, String filed, String value) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || Objects.isNull(value)) {
+                return completed(false);
+            }
+            return written(c -> c.hsetnx(rawKey(key), rawValue(filed), rawValue(value)), key);
+        }
+
+        public CompletableFuture<String> hGet(String key, String filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return completed(null);
+            }
+            return future(c -> c.hget(rawKey(key), rawValue(filed))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<Map<Object, Object>> hGetAll(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.hgetall(rawKey(key))).thenApply(raw -> {
+                Map<Object, Object> map = new LinkedHashMap<>(raw.size() * 4 / 3 + 1);
+                raw.forEach((k, v) -> map.put(value(k), value(v)));
+                return map;
+            });
+        }
+
+        public CompletableFuture<List<Object>> hMGet(String key, Object... filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || filed.length == 0) {
+                return completed(null);
+            }
+            return future(c -> c.hmget(rawKey(key), rawValues(filed))).thenApply(AsyncRedisUtils.this::keyValues);
+        }
+
+        public CompletableFuture<Boolean> hExists(String key, String filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return completed(false);
+            }
+            return future(c -> c.hexists(rawKey(key), rawValue(filed)));
+        }
+
+        public CompletableFuture<Long> hLen(String key) {
+            if (Objects.isNull(key)) {
+                return completed(-1L);
+            }
+            return future(c -> c.hlen(rawKey(key)));
+        }
+
+        public CompletableFuture<Long> hStrLen(String key, String filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return completed(-1L);
+            }
+            return future(c -> c.hstrlen(rawKey(key), rawValue(filed)));
+        }
+
+        public CompletableFuture<Long> hIncrBy(String key, String filed, long increment) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return completed(-1L);
+            }
+            return written(c -> c.hincrby(rawKey(key), rawValue(filed), increment), key);
+        }
+
+        public CompletableFuture<Double> hIncrByFloat(String key, String filed, double increment) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return completed(-1D);
+            }
+            return written(c -> c.hincrbyfloat(rawKey(key), rawValue(filed), increment), key);
+        }
+
+        public CompletableFuture<Set<Object>> hKeys(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.hkeys(rawKey(key))).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+
+        public CompletableFuture<List<Object>> hValues(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.hvals(rawKey(key))).thenApply(AsyncRedisUtils.this::values);
+        }
+    }
+
+    /**
+     * 操作set
+     */
+    public class set {
+
+        public CompletableFuture<Long> sAdd(String key, String... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return completed(-1L);
+            }
+            return future(c -> c.sadd(rawKey(key), rawValues((Object[]) members)));
+        }
+
+        public CompletableFuture<Set<String>> sMembers(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.smembers(rawKey(key))).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+
+        public CompletableFuture<Boolean> sIsMember(String key, String member) {
+            if (Objects.isNull(key) || Objects.isNull(member)) {
+                return completed(false);
+            }
+            return future(c -> c.sismember(rawKey(key), rawValue(member)));
+        }
+
+        public CompletableFuture<Long> sCard(String key) {
+            if (Objects.isNull(key)) {
+                return completed(-1L);
+            }
+            return future(c -> c.scard(rawKey(key)));
+        }
+
+        public CompletableFuture<Long> sRem(String key, Object... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return completed(0L);
+            }
+            return future(c -> c.srem(rawKey(key), rawValues(members)));
+        }
+
+        public CompletableFuture<String> sRandMember(String key) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.srandmember(rawKey(key))).thenApply(AsyncRedisUtils.this::value);
+        }
+
+        public CompletableFuture<List<String>> sRandMember(String key, long count) {
+            if (Objects.isNull(key) || count <= 0) {
+                return completed(null);
+            }
+            return future(c -> c.srandmember(rawKey(key), count)).thenApply(AsyncRedisUtils.this::values);
+        }
+
+        public CompletableFuture<Set<String>> sPop(String key, long count) {
+            if (Objects.isNull(key) || count <= 0) {
+                return completed(null);
+            }
+            return future(c -> c.spop(rawKey(key), count)).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+    }
+
+    /**
+     * 操作zset
+     */
+    public class zset {
+
+        public CompletableFuture<Boolean> sMove(String srcSet, String destinationSet, String member) {
+            if (Objects.isNull(srcSet) || Objects.isNull(destinationSet)) {
+                return completed(false);
+            }
+            return future(c -> c.smove(rawKey(srcSet), rawKey(destinationSet), rawValue(member)));
+        }
+
+        public CompletableFuture<Set<String>> sDiff(String... keys) {
+            if (Objects.isNull(keys) || keys.length == 0) {
+                return completed(null);
+            }
+            return future(c -> c.sdiff(rawKeys(keys))).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+
+        public CompletableFuture<Set<String>> sInter(String... keys) {
+            if (Objects.isNull(keys) || keys.length == 0) {
+                return completed(null);
+            }
+            return future(c -> c.sinter(rawKeys(keys))).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+
+        public CompletableFuture<Set<String>> sUnion(String... keys) {
+            if (Objects.isNull(keys) || keys.length == 0) {
+                return completed(null);
+            }
+            return future(c -> c.sunion(rawKeys(keys))).thenApply(AsyncRedisUtils.this::valueSet);
+        }
+
+        @SuppressWarnings("unchecked")
+        public CompletableFuture<Long> zAdd(String key, Map<String, Double> map) {
+            if (Objects.isNull(key) || Objects.isNull(map) || map.isEmpty()) {
+                return completed(0L);
+            }
+            List<ScoredValue<byte[]>> scoredValues = new ArrayList<>(map.size());
+            map.forEach((member, score) -> {
+                //与RedisUtils.zset.zAdd一致，跳过member或score为null的项
+                if (Objects.nonNull(member) && Objects.nonNull(score)) {
+                    scoredValues.add(ScoredValue.fromNullable(score, rawValue(member)));
+                }
+            });
+            if (scoredValues.isEmpty()) {
+                return completed(0L);
+            }
+            ScoredValue<byte[]>[] args = scoredValues.toArray(new ScoredValue[0]);
+            return future(c -> c.zadd(rawKey(key), args));
+        }
+
+        /**
+         * @return withscore为true时元素类型为ScoredMember，否则为String
+         */
+        public CompletableFuture<List<?>> zRange(String key, long start, long end, boolean withscore) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return completed(null);
+            }
+            if (withscore) {
+                return future(c -> c.zrangeWithScores(rawKey(key), start, end)).thenApply(AsyncRedisUtils.this::scoredMembers);
+            }
+            return future(c -> c.zrange(rawKey(key), start, end)).thenApply(AsyncRedisUtils.this::values);
+        }
+
+        public CompletableFuture<List<?>> zRevRange(String key, long start, long end, boolean withscore) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return completed(null);
+            }
+            if (withscore) {
+                return future(c -> c.zrevrangeWithScores(rawKey(key), start, end)).thenApply(AsyncRedisUtils.this::scoredMembers);
+            }
+            return future(c -> c.zrevrange(rawKey(key), start, end)).thenApply(AsyncRedisUtils.this::values);
+        }
+
+        public CompletableFuture<List<?>> zRangeByScore(String key, double min, double max, boolean withscore) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return completed(null);
+            }
+            Range<Double> range = Range.create(min, max);
+            if (withscore) {
+                return future(c -> c.zrangebyscoreWithScores(rawKey(key), range)).thenApply(AsyncRedisUtils.this::scoredMembers);
+            }
+            return future(c -> c.zrangebyscore(rawKey(key), range)).thenApply(AsyncRedisUtils.this::values);
+        }
+
+        public CompletableFuture<Long> zRem(String key, String... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return completed(0L);
+            }
+            return future(c -> c.zrem(rawKey(key), rawValues((Object[]) members)));
+        }
+
+        public CompletableFuture<Long> zCard(String key) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return future(c -> c.zcard(rawKey(key)));
+        }
+
+        public CompletableFuture<Long> zCount(String key, double min, double max) {
+            if (Objects.isNull(key)) {
+                return completed(0L);
+            }
+            return future(c -> c.zcount(rawKey(key), Range.create(min, max)));
+        }
+
+        /**
+         * @return 成员不存在时为null
+         */
+        public CompletableFuture<Long> zRank(String key, String member) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.zrank(rawKey(key), rawValue(member)));
+        }
+
+        public CompletableFuture<Long> zRevRank(String key, String member) {
+            if (Objects.isNull(key)) {
+                return completed(null);
+            }
+            return future(c -> c.zrevrank(rawKey(key), rawValue(member)));
+        }
+    }
+}
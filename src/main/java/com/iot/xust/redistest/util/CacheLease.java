@@ -0,0 +1,58 @@
+package com.iot.xust.redistest.util;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 19:15 2026/10/18  2026
+ * @Description: getOrLoad的跨节点租约。缓存未命中时各节点先用 SET lease token NX PX 抢租约，
+ * 只有抢到的节点执行加载；其余节点有旧值时直接返回旧值，否则等待最多waitMillis毫秒读取新值，
+ * 仍然读不到时自己加载
+ */
+public final class CacheLease {
+
+    private final long leaseMillis;
+
+    private final long waitMillis;
+
+    private final long staleMillis;
+
+    private CacheLease(long leaseMillis, long waitMillis, long staleMillis) {
+        if (leaseMillis <= 0 || waitMillis < 0 || staleMillis < 0) {
+            throw new IllegalArgumentException("leaseMillis必须大于0，waitMillis和staleMillis不能为负数");
+        }
+        this.leaseMillis = leaseMillis;
+        this.waitMillis = waitMillis;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * @param leaseMillis 租约的有效期，应大于一次加载的耗时，持有租约的节点崩溃时最多阻止其他节点加载这么久
+     * @param waitMillis  没抢到租约的节点最多等待的时间
+     * @return
+     */
+    public static CacheLease of(long leaseMillis, long waitMillis) {
+        return new CacheLease(leaseMillis, waitMillis, 0L);
+    }
+
+    /**
+     * 写入时额外保存一份旧值，比正常的过期时间多存活staleMillis毫秒，没抢到租约的节点直接返回它而不等待。
+     * 只对string.getOrLoad有效
+     *
+     * @param staleMillis
+     * @return
+     */
+    public CacheLease withStale(long staleMillis) {
+        return new CacheLease(leaseMillis, waitMillis, staleMillis);
+    }
+
+    public long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    public long getStaleMillis() {
+        return staleMillis;
+    }
+}
@@ -0,0 +1,425 @@
+package com.iot.xust.redistest.util;
+
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 22:10 2026/10/18  2026
+ * @Description: 计数器的写后聚合：incrBy/hIncrBy先累加到本地按key分段的LongAdder中，
+ * 每隔flushIntervalMillis或有flushThreshold个计数器待写入时，每FLUSH_CHUNK_SIZE个计数器用一次Lua脚本发出INCRBY/HINCRBY，脚本返回每条命令的结果。
+ * 执行成功的命令从本地扣除已写入的增量；被服务端拒绝的命令（如key类型不对、结果溢出）丢弃这次的增量，计入rejectedDelta，不会在每次刷新时重发；
+ * 连不上服务端时增量保留到下一次刷新重试；超时等无法知道脚本是否执行的情况（Lettuce会在重连后继续发送已缓冲的命令），
+ * 这一批的增量按已写入扣除、计入uncertainDelta，不会重复写入。
+ * 丢失的上界：进程崩溃时丢失尚未刷新的增量（正常情况下不超过一个刷新间隔），uncertainDelta为结果未知的增量；
+ * 待写入的计数器达到maxCounters后，新计数器的增量按{@link Overflow}直接写入Redis或丢弃，本地内存不会无限增长。
+ * 关闭时同步刷新一次，失败则抛出异常
+ */
+public class CounterAggregator {
+
+    /**
+     * 计数器连续这么多次刷新没有增量后从本地移除
+     */
+    private static final int IDLE_FLUSHES = 2;
+
+    /**
+     * 移除后继续检查的刷新次数，收集移除前已读到旧计数器、移除后才累加的增量
+     */
+    private static final int RETIRED_FLUSHES = 2;
+
+    /**
+     * 一次脚本调用写入的计数器数量，避免一个脚本长时间阻塞服务端
+     */
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final RedisUtils redisUtils;
+
+    private final long flushIntervalMillis;
+
+    private final int flushThreshold;
+
+    private final int maxCounters;
+
+    private final Overflow overflow;
+
+    /**
+     * string: key -> 计数器；hash: key + '\u0000' + field -> 计数器
+     */
+    private final ConcurrentHashMap<String, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * 已从cells移除、仍在宽限期内的计数器，只由刷新线程访问
+     */
+    private final List<Cell> retired = new ArrayList<>();
+
+    /**
+     * 本刷新周期内有过增量的计数器数量
+     */
+    private final AtomicInteger dirty = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final ScheduledExecutorService flusher;
+
+    private volatile boolean closed;
+
+    private final LongAdder flushCount = new LongAdder();
+
+    private final LongAdder failedFlushCount = new LongAdder();
+
+    private final LongAdder flushedCommandCount = new LongAdder();
+
+    private final LongAdder overflowCount = new LongAdder();
+
+    private final LongAdder droppedDelta = new LongAdder();
+
+    private final LongAdder rejectedCommandCount = new LongAdder();
+
+    private final LongAdder rejectedDelta = new LongAdder();
+
+    private final LongAdder uncertainFlushCount = new LongAdder();
+
+    private final LongAdder uncertainDelta = new LongAdder();
+
+    /**
+     * 计数器数量达到上限后对新计数器的处理方式
+     */
+    public enum Overflow {
+        /**
+         * 直接发出INCRBY/HINCRBY，Redis不可用时调用方收到异常
+         */
+        WRITE_THROUGH,
+        /**
+         * 丢弃增量，计入droppedDelta
+         */
+        DROP
+    }
+
+    /**
+     * @param redisUtils
+     * @param flushIntervalMillis 两次刷新的间隔
+     * @param flushThreshold      待写入的计数器达到这个数量时提前刷新
+     * @param maxCounters         本地最多保存的计数器数量
+     * @param overflow            达到maxCounters后新计数器的处理方式
+     */
+    public CounterAggregator(RedisUtils redisUtils, long flushIntervalMillis, int flushThreshold, int maxCounters, Overflow overflow) {
+        if (Objects.isNull(redisUtils) || Objects.isNull(overflow)) {
+            throw new IllegalArgumentException("redisUtils和overflow不能为空");
+        }
+        if (flushIntervalMillis <= 0 || flushThreshold <= 0 || maxCounters <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis、flushThreshold和maxCounters必须大于0");
+        }
+        this.redisUtils = redisUtils;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushThreshold = flushThreshold;
+        this.maxCounters = maxCounters;
+        this.overflow = overflow;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void incr(String key) {
+        incrBy(key, 1L);
+    }
+
+    /**
+     * 累加string计数器，稍后以INCRBY写入
+     *
+     * @param key
+     * @param increment
+     */
+    public void incrBy(String key, long increment) {
+        if (Objects.isNull(key) || increment == 0) {
+            return;
+        }
+        add(key, key, null, increment);
+    }
+
+    /**
+     * 累加hash中的计数器，稍后以HINCRBY写入
+     *
+     * @param key
+     * @param filed
+     * @param increment
+     */
+    public void hIncrBy(String key, String filed, long increment) {
+        if (Objects.isNull(key) || Objects.isNull(filed) || increment == 0) {
+            return;
+        }
+        add(key + '\u0000' + filed, key, filed, increment);
+    }
+
+    private void add(String id, String key, String field, long increment) {
+        if (closed) {
+            throw new IllegalStateException("CounterAggregator已关闭");
+        }
+        Cell cell;
+        do {
+            cell = cells.get(id);
+            if (Objects.isNull(cell)) {
+                if (cells.size() >= maxCounters) {
+                    overflow(key, field, increment);
+                    return;
+                }
+                cell = cells.computeIfAbsent(id, k -> new Cell(id, key, field));
+            }
+            //刷新线程刚移除的计数器不再累加，重新取一个
+        } while (cell.retired);
+        cell.value.add(increment);
+        if (!cell.dirty) {
+            cell.dirty = true;
+            if (dirty.incrementAndGet() >= flushThreshold) {
+                requestFlush();
+            }
+        }
+    }
+
+    private void overflow(String key, String field, long increment) {
+        overflowCount.increment();
+        if (overflow == Overflow.DROP) {
+            droppedDelta.add(increment);
+        } else if (Objects.isNull(field)) {
+            redisUtils.string.incrBy(key, increment);
+        } else {
+            redisUtils.hash.hIncrBy(key, field, increment);
+        }
+    }
+
+    private void requestFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RuntimeException e) {
+                //已关闭，由close负责最后一次刷新
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //增量保留在本地，下一次刷新重试
+        }
+    }
+
+    /**
+     * 立即把本地累加的增量写入Redis
+     *
+     * @return 发出的INCRBY/HINCRBY数量
+     */
+    public synchronized int flush() {
+        flushScheduled.set(false);
+        List<Cell> pending = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        //并发标记可能重复计数，每次刷新清零，只作为提前刷新的近似依据
+        dirty.set(0);
+        for (Cell cell : cells.values()) {
+            cell.dirty = false;
+            long delta = cell.value.sum();
+            if (delta != 0) {
+                cell.idleFlushes = 0;
+                pending.add(cell);
+                deltas.add(delta);
+            } else if (++cell.idleFlushes >= IDLE_FLUSHES) {
+                cell.retired = true;
+                cells.remove(cell.id, cell);
+                retired.add(cell);
+            }
+        }
+        for (Cell cell : retired) {
+            long delta = cell.value.sum();
+            if (delta != 0) {
+                pending.add(cell);
+                deltas.add(delta);
+            }
+        }
+        flushCount.increment();
+        try {
+            for (int from = 0; from < pending.size(); from += FLUSH_CHUNK_SIZE) {
+                write(pending.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, pending.size())),
+                        deltas.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, pending.size())));
+            }
+        } catch (RuntimeException e) {
+            failedFlushCount.increment();
+            throw e;
+        }
+        Iterator<Cell> iterator = retired.iterator();
+        while (iterator.hasNext()) {
+            Cell cell = iterator.next();
+            if (++cell.retiredFlushes > RETIRED_FLUSHES && cell.value.sum() == 0) {
+                iterator.remove();
+            }
+        }
+        return pending.size();
+    }
+
+    /**
+     * 用一次脚本调用写入一批增量。脚本是原子的，一批要么全部执行、要么都没有执行
+     */
+    private void write(List<Cell> cells, List<Long> deltas) {
+        List<String> keys = new ArrayList<>(cells.size());
+        List<String> fields = new ArrayList<>(cells.size());
+        for (Cell cell : cells) {
+            keys.add(cell.key);
+            fields.add(cell.field);
+        }
+        List<Object> results;
+        try {
+            results = redisUtils.incrByAll(keys, fields, deltas);
+        } catch (RedisConnectionFailureException e) {
+            //没有连上服务端，增量全部保留
+            throw e;
+        } catch (RuntimeException e) {
+            //超时等结果未知的情况：脚本可能已经执行或仍会执行，按已写入扣除，不再重发
+            uncertainFlushCount.increment();
+            for (int i = 0; i < cells.size(); i++) {
+                cells.get(i).value.add(-deltas.get(i));
+                uncertainDelta.add(deltas.get(i));
+            }
+            throw e;
+        }
+        //只扣除本次写入的部分，刷新期间新累加的增量留到下一次
+        for (int i = 0; i < cells.size(); i++) {
+            cells.get(i).value.add(-deltas.get(i));
+            if (results.get(i) instanceof Long) {
+                flushedCommandCount.increment();
+            } else {
+                rejectedCommandCount.increment();
+                rejectedDelta.add(deltas.get(i));
+            }
+        }
+    }
+
+    /**
+     * 停止定时刷新并同步刷新剩余的增量，刷新失败时抛出异常，未写入的增量计入droppedDelta
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            droppedDelta.add(pendingDelta());
+            throw e;
+        }
+    }
+
+    /**
+     * @return 尚未写入Redis的增量之和
+     */
+    public synchronized long pendingDelta() {
+        long sum = 0L;
+        for (Cell cell : cells.values()) {
+            sum += cell.value.sum();
+        }
+        for (Cell cell : retired) {
+            sum += cell.value.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * @return 本地保存的计数器数量
+     */
+    public int size() {
+        return cells.size();
+    }
+
+    public long flushCount() {
+        return flushCount.sum();
+    }
+
+    public long failedFlushCount() {
+        return failedFlushCount.sum();
+    }
+
+    public long flushedCommandCount() {
+        return flushedCommandCount.sum();
+    }
+
+    public long overflowCount() {
+        return overflowCount.sum();
+    }
+
+    public long droppedDelta() {
+        return droppedDelta.sum();
+    }
+
+    /**
+     * @return 被服务端拒绝、已丢弃的命令数量
+     */
+    public long rejectedCommandCount() {
+        return rejectedCommandCount.sum();
+    }
+
+    public long rejectedDelta() {
+        return rejectedDelta.sum();
+    }
+
+    /**
+     * @return 结果未知的刷新次数
+     */
+    public long uncertainFlushCount() {
+        return uncertainFlushCount.sum();
+    }
+
+    /**
+     * @return 结果未知、可能没有写入的增量之和
+     */
+    public long uncertainDelta() {
+        return uncertainDelta.sum();
+    }
+
+    private static final class Cell {
+
+        final String id;
+
+        final String key;
+
+        /**
+         * string计数器为null
+         */
+        final String field;
+
+        final LongAdder value = new LongAdder();
+
+        volatile boolean dirty;
+
+        volatile boolean retired;
+
+        /**
+         * 以下两项只由刷新线程读写
+         */
+        int idleFlushes;
+
+        int retiredFlushes;
+
+        Cell(String id, String key, String field) {
+            this.id = id;
+            this.key = key;
+            this.field = field;
+        }
+    }
+}
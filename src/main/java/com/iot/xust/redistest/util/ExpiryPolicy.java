@@ -0,0 +1,96 @@
+package com.iot.xust.redistest.util;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 20:05 2026/10/18  2026
+ * @Description: 过期策略：基础TTL加上一段偏移，让批量写入的key不在同一时刻过期。
+ * 偏移可以是每次随机的(jitter)，也可以由key的哈希值决定(spread)，后者对同一个key每次写入得到相同的TTL。
+ * 偏移精确到毫秒，写入时使用PX/PEXPIRE
+ */
+public final class ExpiryPolicy {
+
+    private final long baseMillis;
+
+    private final long spreadMillis;
+
+    private final boolean random;
+
+    private ExpiryPolicy(long baseMillis, long spreadMillis, boolean random) {
+        if (baseMillis <= 0 || spreadMillis < 0) {
+            throw new IllegalArgumentException("基础TTL必须大于0，偏移不能为负数");
+        }
+        this.baseMillis = baseMillis;
+        this.spreadMillis = spreadMillis;
+        this.random = random;
+    }
+
+    /**
+     * 固定的TTL
+     *
+     * @param seconds
+     * @return
+     */
+    public static ExpiryPolicy fixed(long seconds) {
+        return new ExpiryPolicy(TimeUnit.SECONDS.toMillis(seconds), 0L, false);
+    }
+
+    /**
+     * TTL在[seconds, seconds + maxJitterSeconds)之间随机
+     *
+     * @param seconds
+     * @param maxJitterSeconds
+     * @return
+     */
+    public static ExpiryPolicy jitter(long seconds, long maxJitterSeconds) {
+        return new ExpiryPolicy(TimeUnit.SECONDS.toMillis(seconds), TimeUnit.SECONDS.toMillis(maxJitterSeconds), true);
+    }
+
+    /**
+     * TTL在[seconds, seconds + maxSpreadSeconds)之间，由key的哈希值决定
+     *
+     * @param seconds
+     * @param maxSpreadSeconds
+     * @return
+     */
+    public static ExpiryPolicy spread(long seconds, long maxSpreadSeconds) {
+        return new ExpiryPolicy(TimeUnit.SECONDS.toMillis(seconds), TimeUnit.SECONDS.toMillis(maxSpreadSeconds), false);
+    }
+
+    /**
+     * @param key
+     * @return 这个key本次写入应使用的TTL（毫秒）
+     */
+    public long ttlMillis(String key) {
+        if (spreadMillis == 0) {
+            return baseMillis;
+        }
+        if (random) {
+            return baseMillis + ThreadLocalRandom.current().nextLong(spreadMillis);
+        }
+        return baseMillis + Math.floorMod(mix(Objects.hashCode(key)), spreadMillis);
+    }
+
+    /**
+     * String.hashCode的低位分布不均匀，打散后再取模
+     */
+    private static long mix(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    public long getBaseMillis() {
+        return baseMillis;
+    }
+
+    public long getSpreadMillis() {
+        return spreadMillis;
+    }
+
+    public boolean isRandom() {
+        return random;
+    }
+}
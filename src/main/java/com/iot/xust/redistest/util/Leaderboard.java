@@ -0,0 +1,457 @@
+package com.iot.xust.redistest.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 23:40 2026/10/18  2026
+ * @Description: 基于RedisUtils.zset的排行榜，score越高排名越靠前，排名从0开始。
+ * 前topN名保存在本地快照中，snapshotTtlMillis内的读取不访问Redis；快照过期后由一个线程重新读取前topN名，其他线程继续使用旧快照。
+ * 本节点提交的score先合并到本地缓冲区，每隔flushIntervalMillis或缓冲了batchSize个成员时用分批的ZADD写入，
+ * 写入成功后直接合并进快照，不必等快照过期；其他节点的提交在快照过期后可见。
+ * 成员自己的排名及前后的成员由一次Lua调用取得，任何读取都不会读取整个有序集合
+ */
+public class Leaderboard {
+
+    private final RedisUtils redisUtils;
+
+    private final String key;
+
+    private final int topN;
+
+    private final long snapshotTtlNanos;
+
+    private final long flushIntervalMillis;
+
+    private final int batchSize;
+
+    private final ZAddFlag[] flags;
+
+    /**
+     * 同一个成员在一次刷新前多次提交时保留的score，与ZADD的选项一致
+     */
+    private final BinaryOperator<Double> merger;
+
+    /**
+     * 本地合并写入后的结果与服务端一致，可以直接更新快照
+     */
+    private final boolean incremental;
+
+    /**
+     * 成员 -> 待写入的score
+     */
+    private final ConcurrentHashMap<String, Double> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private final ScheduledExecutorService flusher;
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean closed;
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    private final LongAdder flushCount = new LongAdder();
+
+    private final LongAdder failedFlushCount = new LongAdder();
+
+    private final LongAdder flushedMemberCount = new LongAdder();
+
+    /**
+     * @param redisUtils
+     * @param key                 排行榜使用的有序集合
+     * @param topN                本地快照保存的名次数量
+     * @param snapshotTtlMillis   快照的有效期
+     * @param flushIntervalMillis 两次写入的间隔
+     * @param batchSize           缓冲的成员达到这个数量时提前写入，也是每条ZADD携带的成员数量
+     * @param flags               写入时使用的ZADD选项，例如只保留最高分时使用GT（需要Redis 6.2及以上）
+     */
+    public Leaderboard(RedisUtils redisUtils, String key, int topN, long snapshotTtlMillis, long flushIntervalMillis, int batchSize, ZAddFlag... flags) {
+        if (Objects.isNull(redisUtils) || Objects.isNull(key) || "".equals(key)) {
+            throw new IllegalArgumentException("redisUtils和key不能为空");
+        }
+        if (topN <= 0 || snapshotTtlMillis < 0 || flushIntervalMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("topN、flushIntervalMillis和batchSize必须大于0，snapshotTtlMillis不能为负数");
+        }
+        this.redisUtils = redisUtils;
+        this.key = key;
+        this.topN = topN;
+        this.snapshotTtlNanos = TimeUnit.MILLISECONDS.toNanos(snapshotTtlMillis);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batchSize = batchSize;
+        this.flags = Objects.isNull(flags) ? new ZAddFlag[0] : flags.clone();
+        EnumSet<ZAddFlag> set = EnumSet.noneOf(ZAddFlag.class);
+        set.addAll(Arrays.asList(this.flags));
+        if (set.contains(ZAddFlag.GT)) {
+            this.merger = (a, b) -> Math.max(a, b);
+        } else if (set.contains(ZAddFlag.LT)) {
+            this.merger = (a, b) -> Math.min(a, b);
+        } else if (set.contains(ZAddFlag.NX)) {
+            this.merger = (a, b) -> a;
+        } else {
+            this.merger = (a, b) -> b;
+        }
+        //NX、XX、LT是否生效取决于服务端已有的score，本地无法判断，写入后让快照过期
+        set.remove(ZAddFlag.CH);
+        set.remove(ZAddFlag.GT);
+        this.incremental = set.isEmpty();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "redis-leaderboard-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交成员的score，稍后批量写入
+     *
+     * @param member
+     * @param score
+     */
+    public void submit(String member, double score) {
+        if (Objects.isNull(member)) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Leaderboard已关闭");
+        }
+        pending.merge(member, score, merger);
+        if (pending.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * @param scores 成员 -> score
+     */
+    public void submitAll(Map<String, Double> scores) {
+        if (Objects.isNull(scores)) {
+            return;
+        }
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            if (Objects.nonNull(entry.getValue())) {
+                submit(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void requestFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RuntimeException e) {
+                //已关闭，由close负责最后一次写入
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //score保留在本地，下一次刷新重试
+        }
+    }
+
+    /**
+     * 立即写入缓冲的score
+     *
+     * @return 写入的成员数量
+     */
+    public synchronized int flush() {
+        flushScheduled.set(false);
+        int size = pending.size();
+        if (size == 0) {
+            return 0;
+        }
+        String[] members = new String[size];
+        double[] scores = new double[size];
+        int count = 0;
+        for (Map.Entry<String, Double> entry : pending.entrySet()) {
+            if (count == size) {
+                break;
+            }
+            //刷新期间又提交的score留在缓冲区，下一次写入
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                members[count] = entry.getKey();
+                scores[count] = entry.getValue();
+                count++;
+            }
+        }
+        if (count < size) {
+            members = Arrays.copyOf(members, count);
+            scores = Arrays.copyOf(scores, count);
+        }
+        flushCount.increment();
+        try {
+            redisUtils.zset.zAdd(key, members, scores, batchSize, flags);
+        } catch (RuntimeException e) {
+            failedFlushCount.increment();
+            //写入失败的score早于缓冲区中的新提交
+            for (int i = 0; i < count; i++) {
+                pending.merge(members[i], scores[i], (newer, failed) -> merger.apply(failed, newer));
+            }
+            throw e;
+        }
+        flushedMemberCount.add(count);
+        merge(members, scores);
+        return count;
+    }
+
+    /**
+     * 把已写入的score合并进快照
+     */
+    private void merge(String[] members, double[] scores) {
+        Snapshot current = snapshot;
+        if (Objects.isNull(current)) {
+            return;
+        }
+        if (!incremental) {
+            snapshot = current.expired(snapshotTtlNanos);
+            return;
+        }
+        ScoredRange range = current.range;
+        Map<String, Double> merged = new HashMap<>(range.size() + members.length);
+        for (int i = 0; i < range.size(); i++) {
+            merged.put(range.getMember(i), range.getScore(i));
+        }
+        boolean full = range.size() >= topN;
+        double floor = full ? range.getScore(range.size() - 1) : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < members.length; i++) {
+            Double before = merged.get(members[i]);
+            double after = merged.merge(members[i], scores[i], merger);
+            //快照已满时，新变成与原最后一名同分的成员与快照之外的同分成员谁在前无法确定
+            if (full && after == floor && (Objects.isNull(before) || before != floor)) {
+                snapshot = current.expired(snapshotTtlNanos);
+                return;
+            }
+        }
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(merged.size());
+        for (Map.Entry<String, Double> entry : merged.entrySet()) {
+            //快照已满时，低于原最后一名的成员与快照之外的成员无法比较
+            if (!full || entry.getValue() >= floor) {
+                entries.add(entry);
+            }
+        }
+        if (full && entries.size() < topN) {
+            snapshot = current.expired(snapshotTtlNanos);
+            return;
+        }
+        //与ZREVRANGE一致：score从高到低，score相同时按成员编码后的字节从大到小，只有同分的成员才需要编码
+        Map<String, byte[]> raw = new HashMap<>();
+        entries.sort((a, b) -> {
+            int compare = Double.compare(b.getValue(), a.getValue());
+            if (compare != 0) {
+                return compare;
+            }
+            return compareBytes(raw.computeIfAbsent(b.getKey(), redisUtils::rawValue),
+                    raw.computeIfAbsent(a.getKey(), redisUtils::rawValue));
+        });
+        int size = Math.min(entries.size(), topN);
+        String[] topMembers = new String[size];
+        double[] topScores = new double[size];
+        for (int i = 0; i < size; i++) {
+            topMembers[i] = entries.get(i).getKey();
+            topScores[i] = entries.get(i).getValue();
+        }
+        snapshot = new Snapshot(new ScoredRange(topMembers, topScores, 0L), current.loadedAt);
+    }
+
+    /**
+     * @param n 不超过topN
+     * @return 前n名，来自本地快照
+     */
+    public ScoredRange top(int n) {
+        if (n <= 0) {
+            return ScoredRange.empty();
+        }
+        if (n > topN) {
+            throw new IllegalArgumentException("n不能超过topN: " + topN);
+        }
+        ScoredRange range = snapshot().range;
+        if (n >= range.size()) {
+            return range;
+        }
+        return new ScoredRange(Arrays.copyOf(range.members(), n), Arrays.copyOf(range.scores(), n), 0L);
+    }
+
+    /**
+     * @param member
+     * @return 成员的排名，不在排行榜中时返回-1。在快照中时不访问Redis
+     */
+    public long rank(String member) {
+        if (Objects.isNull(member)) {
+            return -1L;
+        }
+        Integer index = snapshot().positions.get(member);
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+        ScoredRange range = around(member, 0);
+        return range.size() == 0 ? -1L : range.getRank(0);
+    }
+
+    /**
+     * 一次Lua调用取得成员的排名及前后各radius个成员，直接读取Redis
+     *
+     * @param member
+     * @param radius
+     * @return 成员不在排行榜中时返回空结果
+     */
+    public ScoredRange around(String member, int radius) {
+        return redisUtils.zset.zRevRangeAround(key, member, radius);
+    }
+
+    /**
+     * @return 排行榜中的成员数量，不包括尚未写入的提交
+     */
+    public long size() {
+        return redisUtils.zset.zCard(key);
+    }
+
+    /**
+     * 快照过期时由一个线程重新读取，其他线程返回旧快照；还没有快照时都等待第一次读取
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (Objects.isNull(current)) {
+            synchronized (this) {
+                current = snapshot;
+                if (Objects.isNull(current)) {
+                    current = refresh();
+                }
+            }
+            return current;
+        }
+        if (System.nanoTime() - current.loadedAt < snapshotTtlNanos || !refreshing.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            synchronized (this) {
+                return refresh();
+            }
+        } catch (RuntimeException e) {
+            //Redis不可用时继续使用旧快照
+            return current;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * 调用方持有this，与flush互斥，避免读到写入前的结果覆盖刚合并的快照
+     */
+    private Snapshot refresh() {
+        long loadedAt = System.nanoTime();
+        ScoredRange range = redisUtils.zset.zRevRangeWithScores(key, 0, topN - 1);
+        refreshCount.increment();
+        Snapshot loaded = new Snapshot(range, loadedAt);
+        snapshot = loaded;
+        return loaded;
+    }
+
+    /**
+     * 使快照立即过期，下一次读取时重新加载
+     */
+    public void invalidate() {
+        Snapshot current = snapshot;
+        if (Objects.nonNull(current)) {
+            snapshot = current.expired(snapshotTtlNanos);
+        }
+    }
+
+    /**
+     * 停止定时写入并同步写入剩余的score，写入失败时抛出异常
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return 尚未写入Redis的成员数量
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public long refreshCount() {
+        return refreshCount.sum();
+    }
+
+    public long flushCount() {
+        return flushCount.sum();
+    }
+
+    public long failedFlushCount() {
+        return failedFlushCount.sum();
+    }
+
+    public long flushedMemberCount() {
+        return flushedMemberCount.sum();
+    }
+
+    /**
+     * 与Redis比较有序集合成员的方式一致：按无符号字节逐个比较，前缀相同时较短的在前
+     */
+    static int compareBytes(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int compare = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static final class Snapshot {
+
+        final ScoredRange range;
+
+        /**
+         * 成员 -> 排名
+         */
+        final Map<String, Integer> positions;
+
+        final long loadedAt;
+
+        Snapshot(ScoredRange range, long loadedAt) {
+            this(range, new HashMap<>(range.size() * 2), loadedAt);
+            for (int i = 0; i < range.size(); i++) {
+                positions.put(range.getMember(i), i);
+            }
+        }
+
+        private Snapshot(ScoredRange range, Map<String, Integer> positions, long loadedAt) {
+            this.range = range;
+            this.positions = positions;
+            this.loadedAt = loadedAt;
+        }
+
+        Snapshot expired(long ttlNanos) {
+            return new Snapshot(range, positions, loadedAt - ttlNanos - 1);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.iot.xust.redistest.util;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 16:05 2026/10/18  2026
+ * @Description: string.get和hash.hGet的本地近端缓存。
+ * 容量有上限，每个条目有本地TTL；容量满时用频率草图做准入：新条目的访问频率高于最老的条目才会把它挤出去。
+ * 其他节点的写入通过keyspace通知失效，经由RedisUtils的写入在本地立即失效
+ */
+public class NearCache {
+
+    private final int maximumSize;
+
+    private final long ttlMillis;
+
+    /**
+     * string类型：key -> value
+     */
+    private final ConcurrentHashMap<String, Entry> values = new ConcurrentHashMap<>();
+
+    /**
+     * hash类型：key -> (field -> value)
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>> fields = new ConcurrentHashMap<>();
+
+    /**
+     * 按写入顺序排列的候选淘汰队列
+     */
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+
+    /**
+     * order中的节点数，包括已被替换或失效的节点
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final FrequencySketch sketch;
+
+    /**
+     * 按key的哈希分段的失效版本号，key失效时所在分段加一。
+     * 读到的值只有在加载期间这个分段没有发生失效时才放入缓存，避免把旧值写回；其他key的失效不影响准入
+     */
+    private final AtomicLongArray versions;
+
+    private final int versionMask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param maximumSize 最多缓存的条目数（string的key与hash的field各算一条）
+     * @param ttlMillis   条目在本地的最长存活时间，用来兜底丢失的失效通知
+     */
+    public NearCache(int maximumSize, long ttlMillis) {
+        if (maximumSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("maximumSize和ttlMillis必须大于0");
+        }
+        this.maximumSize = maximumSize;
+        this.ttlMillis = ttlMillis;
+        this.sketch = new FrequencySketch(maximumSize);
+        int stripes = Integer.highestOneBit(Math.max(64, Math.min(maximumSize, 1 << 16)) - 1) << 1;
+        this.versions = new AtomicLongArray(stripes);
+        this.versionMask = stripes - 1;
+    }
+
+    /**
+     * 在从Redis加载之前调用，加载完成后把返回值传给put
+     *
+     * @param key
+     * @return key当前的失效版本号
+     */
+    public long stamp(String key) {
+        return versions.get(stripe(key));
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & versionMask;
+    }
+
+    public String get(String key) {
+        sketch.increment(key, null);
+        return read(values.get(key));
+    }
+
+    public String get(String key, String field) {
+        sketch.increment(key, field);
+        Map<String, Entry> map = fields.get(key);
+        return Objects.isNull(map) ? miss() : read(map.get(field));
+    }
+
+    public void put(String key, String value, long stamp) {
+        if (Objects.nonNull(key) && Objects.nonNull(value)) {
+            admit(new Entry(key, null, value, System.currentTimeMillis() + ttlMillis), stamp);
+        }
+    }
+
+    public void put(String key, String field, String value, long stamp) {
+        if (Objects.nonNull(key) && Objects.nonNull(field) && Objects.nonNull(value)) {
+            admit(new Entry(key, field, value, System.currentTimeMillis() + ttlMillis), stamp);
+        }
+    }
+
+    /**
+     * 让key对应的string值以及hash的所有field失效
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        if (Objects.isNull(key)) {
+            return;
+        }
+        versions.incrementAndGet(stripe(key));
+        invalidations.increment();
+        if (Objects.nonNull(values.remove(key))) {
+            size.decrementAndGet();
+        }
+        //在key的锁内移除并扣减数量，与并发的放入和移除互斥
+        fields.computeIfPresent(key, (k, map) -> {
+            size.addAndGet(-map.size());
+            return null;
+        });
+    }
+
+    /**
+     * 清空缓存，通常在与Redis的订阅连接断开、失效通知可能丢失时调用
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < versions.length(); i++) {
+            versions.incrementAndGet(i);
+        }
+        invalidations.increment();
+        values.clear();
+        fields.clear();
+        order.clear();
+        queued.set(0);
+        size.set(0);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long invalidationCount() {
+        return invalidations.sum();
+    }
+
+    public int size() {
+        return Math.max(0, size.get());
+    }
+
+    private String read(Entry entry) {
+        if (Objects.isNull(entry)) {
+            return miss();
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            remove(entry);
+            return miss();
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    private String miss() {
+        misses.increment();
+        return null;
+    }
+
+    private void admit(Entry entry, long stamp) {
+        if (size.get() >= maximumSize && !makeRoomFor(entry)) {
+            return;
+        }
+        if (Objects.isNull(entry.field)) {
+            if (Objects.isNull(values.put(entry.key, entry))) {
+                size.incrementAndGet();
+            }
+        } else {
+            fields.compute(entry.key, (k, map) -> {
+                if (Objects.isNull(map)) {
+                    map = new ConcurrentHashMap<>();
+                }
+                if (Objects.isNull(map.put(entry.field, entry))) {
+                    size.incrementAndGet();
+                }
+                return map;
+            });
+        }
+        enqueue(entry);
+        //加载期间这个key发生了失效，刚放入的可能是旧值
+        if (stamp(entry.key) != stamp) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * 只移除仍是这个条目的映射并扣减数量，hash在key的锁内操作，内层Map为空时一并移除
+     *
+     * @return 是否移除
+     */
+    private boolean remove(Entry entry) {
+        if (Objects.isNull(entry.field)) {
+            if (values.remove(entry.key, entry)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        fields.computeIfPresent(entry.key, (k, map) -> {
+            if (map.remove(entry.field, entry)) {
+                size.decrementAndGet();
+                removed[0] = true;
+            }
+            return map.isEmpty() ? null : map;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 取出最老的条目作为淘汰对象，候选条目更常被访问时淘汰它，否则给它一次机会放回队尾并拒绝候选条目
+     */
+    private boolean makeRoomFor(Entry candidate) {
+        Entry victim;
+        while (Objects.nonNull(victim = order.poll())) {
+            queued.decrementAndGet();
+            if (!victim.isLive(this)) {
+                continue;
+            }
+            if (sketch.frequency(candidate.key, candidate.field) > sketch.frequency(victim.key, victim.field)) {
+                if (remove(victim)) {
+                    evictions.increment();
+                }
+                return true;
+            }
+            enqueue(victim);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 被替换或失效的条目仍留在队列里，节点数超过容量两倍时清理一遍
+     */
+    private void enqueue(Entry entry) {
+        order.add(entry);
+        if (queued.incrementAndGet() > 2 * maximumSize) {
+            for (int i = queued.get(); i > 0; i--) {
+                Entry head = order.poll();
+                if (Objects.isNull(head)) {
+                    break;
+                }
+                queued.decrementAndGet();
+                if (head.isLive(this)) {
+                    order.add(head);
+                    queued.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final String key;
+
+        final String field;
+
+        final String value;
+
+        final long expireAt;
+
+        Entry(String key, String field, String value, long expireAt) {
+            this.key = key;
+            this.field = field;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isLive(NearCache cache) {
+            if (Objects.isNull(field)) {
+                return cache.values.get(key) == this;
+            }
+            Map<String, Entry> map = cache.fields.get(key);
+            return Objects.nonNull(map) && map.get(field) == this;
+        }
+    }
+
+    /**
+     * 4行的Count-Min草图，计数在15饱和，累计采样数达到10倍容量时全部减半，使频率随时间衰减。
+     * 并发更新不加锁，少量计数丢失只会影响估计精度
+     */
+    static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+
+        private static final int MAX_COUNT = 15;
+
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] table;
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private final AtomicInteger samples = new AtomicInteger();
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        void increment(String key, String field) {
+            int hash = hash(key, field);
+            for (int i = 0; i < DEPTH; i++) {
+                int index = index(hash, i);
+                if (table[i][index] < MAX_COUNT) {
+                    table[i][index]++;
+                }
+            }
+            if (samples.incrementAndGet() >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(String key, String field) {
+            int hash = hash(key, field);
+            int min = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, table[i][index(hash, i)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            samples.set(0);
+            for (byte[] row : table) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = (byte) (row[j] >> 1);
+                }
+            }
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int hash(String key, String field) {
+            int h = key.hashCode();
+            return Objects.isNull(field) ? h : 31 * h + field.hashCode();
+        }
+    }
+}
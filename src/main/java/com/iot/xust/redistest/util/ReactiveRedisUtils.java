@@ -0,0 +1,715 @@
+package com.iot.xust.redistest.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:20 2026/10/18  2026
+ * @Description: RedisUtils的响应式版本，单值结果返回Mono，多值结果返回Flux。
+ * 范围查询和scan系列方法以Flux逐个推送元素并遵守下游的背压，scan只在下游请求时才取下一批
+ */
+@Component
+public class ReactiveRedisUtils {
+
+    @Autowired
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    /**
+     * 近端缓存，只有配置了redis.near-cache.enabled=true时才存在，经由本类的写入同样会让它失效
+     */
+    @Autowired(required = false)
+    private NearCache nearCache;
+
+    public final string string = new string();
+
+    public final list list = new list();
+
+    public final hash hash = new hash();
+
+    public final set set = new set();
+
+    public final zset zset = new zset();
+
+    private <T> Mono<T> written(Mono<T> mono, String key) {
+        return mono.doFinally(signal -> {
+            if (Objects.nonNull(nearCache)) {
+                nearCache.invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * 执行按字节操作string的脚本，参数和返回值不经过值编解码，见{@link RedisUtils#TEXT_STRLEN}等
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> text(RedisScript<T> script, String key, Object... args) {
+        return reactiveRedisTemplate.execute(script, Collections.singletonList(key), Arrays.asList(args),
+                RedisElementWriter.from(RedisUtils.RAW), (RedisElementReader<T>) RedisElementReader.from(RedisUtils.RAW)).next();
+    }
+
+    private byte[] rawValue(String value) {
+        ByteBuffer buffer = reactiveRedisTemplate.getSerializationContext().getValueSerializationPair().write(value);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] rawNumber(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    private static ScanOptions scanOptions(String pattern, long count) {
+        return ScanOptions.scanOptions().match(Objects.isNull(pattern) ? "*" : pattern).count(Math.max(1L, count)).build();
+    }
+
+    private static Range<Long> closed(long start, long end) {
+        return Range.of(Range.Bound.inclusive(start), Range.Bound.inclusive(end));
+    }
+
+    private static Range<Double> closed(double min, double max) {
+        return Range.of(Range.Bound.inclusive(min), Range.Bound.inclusive(max));
+    }
+
+    private static ScoredMember scoredMember(ZSetOperations.TypedTuple<Object> tuple) {
+        Double score = tuple.getScore();
+        return new ScoredMember((String) tuple.getValue(), Objects.isNull(score) ? 0D : score);
+    }
+
+    public Mono<Boolean> expire(String key, long timeout) {
+        if (Objects.isNull(key) || timeout <= 0) {
+            return Mono.just(false);
+        }
+        return reactiveRedisTemplate.expire(key, Duration.ofSeconds(timeout));
+    }
+
+    /***
+     * 查看某个key的过期时间
+     * @param key
+     * @return 过期时间 （秒/s），key不存在或没有过期时间时为空
+     */
+    public Mono<Long> ttl(String key) {
+        if (Objects.isNull(key)) {
+            return Mono.empty();
+        }
+        return reactiveRedisTemplate.getExpire(key).map(Duration::getSeconds);
+    }
+
+    public Mono<Boolean> exists(String key) {
+        if (Objects.isNull(key)) {
+            return Mono.just(false);
+        }
+        return reactiveRedisTemplate.hasKey(key);
+    }
+
+    public Mono<DataType> type(String key) {
+        if (Objects.isNull(key)) {
+            return Mono.empty();
+        }
+        return reactiveRedisTemplate.type(key);
+    }
+
+    public Mono<Long> del(String... keys) {
+        if (Objects.isNull(keys) || keys.length == 0) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.delete(keys).doFinally(signal -> invalidate(keys));
+    }
+
+    public Mono<Long> unlink(String... keys) {
+        if (Objects.isNull(keys) || keys.length == 0) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.unlink(keys).doFinally(signal -> invalidate(keys));
+    }
+
+    private void invalidate(String... keys) {
+        if (Objects.nonNull(nearCache)) {
+            for (String key : keys) {
+                nearCache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * 使用SCAN游标遍历匹配pattern的key，下游请求时才取下一批
+     *
+     * @param pattern 匹配模式
+     * @param count   每批返回数量的提示值(COUNT)
+     * @return
+     */
+    public Flux<String> scanKeys(String pattern, long count) {
+        return reactiveRedisTemplate.scan(scanOptions(pattern, count));
+    }
+
+    /**
+     * 操作string
+     */
+    public class string {
+
+        public Mono<Boolean> set(String key, String value) {
+            if (Objects.isNull(key) || Objects.isNull(value)) {
+                return Mono.just(false);
+            }
+            return written(reactiveRedisTemplate.opsForValue().set(key, value), key);
+        }
+
+        /**
+         * @param command ex表示秒，px表示毫秒
+         */
+        public Mono<Boolean> set(String key, String value, String command, long timout) {
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(command) || timout <= 0) {
+                return Mono.just(false);
+            }
+            Duration duration = "px".equals(command.toLowerCase()) ? Duration.ofMillis(timout) : Duration.ofSeconds(timout);
+            return written(reactiveRedisTemplate.opsForValue().set(key, value, duration), key);
+        }
+
+        /**
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
+        public Mono<Boolean> set(String key, String value, boolean isKeyAbsent) {
+            if (Objects.isNull(key) || Objects.isNull(value)) {
+                return Mono.just(false);
+            }
+            Mono<Boolean> result = isKeyAbsent
+                    ? reactiveRedisTemplate.opsForValue().setIfAbsent(key, value)
+                    : reactiveRedisTemplate.opsForValue().setIfPresent(key, value);
+            return written(result, key);
+        }
+
+        /**
+         * 一条SET命令同时带上NX|XX和EX|PX
+         *
+         * @param command     ex表示秒，px表示毫秒
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
+        public Mono<Boolean> set(String key, String value, String command, long timout, boolean isKeyAbsent) {
+            if (Objects.isNull(command)) {
+                return set(key, value, isKeyAbsent);
+            }
+            if (Objects.isNull(key) || Objects.isNull(value) || timout <= 0) {
+                return Mono.just(false);
+            }
+            Duration duration = "px".equals(command.toLowerCase()) ? Duration.ofMillis(timout) : Duration.ofSeconds(timout);
+            Mono<Boolean> result = isKeyAbsent
+                    ? reactiveRedisTemplate.opsForValue().setIfAbsent(key, value, duration)
+                    : reactiveRedisTemplate.opsForValue().setIfPresent(key, value, duration);
+            return written(result, key);
+        }
+
+        public Mono<Boolean> mset(Map<String, String> map) {
+            if (Objects.isNull(map) || map.isEmpty()) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForValue().multiSet(map).doFinally(signal -> invalidate(map.keySet().toArray(new String[0])));
+        }
+
+        public Mono<String> get(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForValue().get(key).map(ReactiveRedisUtils::cast);
+        }
+
+        /**
+         * @return 与keys一一对应，不存在的key对应null
+         */
+        public Mono<List<String>> mget(Collection<String> keys) {
+            if (Objects.isNull(keys) || keys.isEmpty()) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForValue().multiGet(new ArrayList<>(keys)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<String> getRange(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return text(RedisUtils.TEXT_GETRANGE, key, rawNumber(start), rawNumber(stop))
+                    .map(range -> new String(range, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * value的UTF-8字节数，不计编解码加在前面的类型标记，见{@link RedisUtils.string#strlen(String)}
+         */
+        public Mono<Long> strlen(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return text(RedisUtils.TEXT_STRLEN, key);
+        }
+
+        /**
+         * 追加原始的UTF-8字节，key不存在时同set，见{@link RedisUtils.string#append(String, String)}
+         */
+        public Mono<Long> append(String key, String s) {
+            if (Objects.isNull(key) || Objects.isNull(s)) {
+                return Mono.just(0L);
+            }
+            return written(text(RedisUtils.TEXT_APPEND, key, s.getBytes(StandardCharsets.UTF_8), rawValue(s)), key);
+        }
+
+        public Mono<Long> incr(String key) {
+            return incrBy(key, 1);
+        }
+
+        public Mono<Long> incrBy(String key, long increment) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return written(reactiveRedisTemplate.opsForValue().increment(key, increment), key);
+        }
+
+        public Mono<Long> decr(String key) {
+            return decrBy(key, 1);
+        }
+
+        public Mono<Long> decrBy(String key, long decrement) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return written(reactiveRedisTemplate.opsForValue().decrement(key, decrement), key);
+        }
+
+        public Mono<Long> setRange(String key, long offset, String value) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            if (Objects.isNull(value)) {
+                return Mono.just(0L);
+            }
+            return written(text(RedisUtils.TEXT_SETRANGE, key, rawNumber(offset), value.getBytes(StandardCharsets.UTF_8), rawValue(value)), key);
+        }
+    }
+
+    /**
+     * 操作list
+     */
+    public class list {
+
+        public Mono<Long> lPush(String key, String... value) {
+            if (Objects.isNull(key) || Objects.isNull(value) || value.length == 0) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForList().leftPushAll(key, (Object[]) value);
+        }
+
+        public Mono<Long> lPushX(String key, String value) {
+            if (Objects.isNull(key)) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForList().leftPushIfPresent(key, value);
+        }
+
+        public Mono<Long> rPush(String key, String... value) {
+            if (Objects.isNull(key) || Objects.isNull(value) || value.length == 0) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForList().rightPushAll(key, (Object[]) value);
+        }
+
+        public Mono<String> lPop(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForList().leftPop(key).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<String> rPop(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForList().rightPop(key).map(ReactiveRedisUtils::cast);
+        }
+
+        /**
+         * 范围检索,根据下标，逐个推送[start,stop]的元素
+         */
+        public Flux<String> lRange(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForList().range(key, start, stop).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<String> rPopLPush(String srckey, String destKey) {
+            if (Objects.isNull(srckey) || Objects.isNull(destKey)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForList().rightPopAndLeftPush(srckey, destKey).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<Long> llen(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return reactiveRedisTemplate.opsForList().size(key);
+        }
+
+        public Mono<Long> lRem(String key, long count, String value) {
+            if (Objects.isNull(key)) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForList().remove(key, count, value);
+        }
+
+        public Mono<Boolean> lTrim(String key, long start, long stop) {
+            if (Objects.isNull(key)) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForList().trim(key, start, stop);
+        }
+
+        public Mono<String> lIndex(String key, long index) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForList().index(key, index).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<Boolean> lSet(String key, long index, String value) {
+            if (Objects.isNull(key)) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForList().set(key, index, value);
+        }
+    }
+
+    /**
+     * 操作hash
+     */
+    public class hash {
+
+        public Mono<Boolean> hSet(String key, String filed, String value) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || Objects.isNull(value)) {
+                return Mono.just(false);
+            }
+            return written(reactiveRedisTemplate.opsForHash().put(key, filed, value), key);
+        }
+
+        public Mono<Boolean> hMSet(String key, Map<String, Object> map) {
+            if (Objects.isNull(key) || Objects.isNull(map)) {
+                return Mono.just(false);
+            }
+            return written(reactiveRedisTemplate.opsForHash().putAll(key, map), key);
+        }
+
+        public Mono<Boolean> hSetNX(String key, String filed, String value) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || Objects.isNull(value)) {
+                return Mono.just(false);
+            }
+            return written(reactiveRedisTemplate.opsForHash().putIfAbsent(key, filed, value), key);
+        }
+
+        public Mono<String> hGet(String key, String filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().get(key, filed).map(ReactiveRedisUtils::cast);
+        }
+
+        /**
+         * 逐个推送hash表中的所有域和值，hash很大时请使用hScan
+         */
+        public Flux<Map.Entry<Object, Object>> hGetAll(String key) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().entries(key);
+        }
+
+        public Mono<List<Object>> hMGet(String key, Object... filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || filed.length == 0) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().multiGet(key, Arrays.asList(filed));
+        }
+
+        public Mono<Boolean> hExists(String key, String filed) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForHash().hasKey(key, filed);
+        }
+
+        public Mono<Long> hLen(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForHash().size(key);
+        }
+
+        public Mono<Long> hIncrBy(String key, String filed, long increment) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return Mono.just(-1L);
+            }
+            return written(reactiveRedisTemplate.<Object, Object>opsForHash().increment(key, filed, increment), key);
+        }
+
+        public Mono<Double> hIncrByFloat(String key, String filed, double increment) {
+            if (Objects.isNull(key) || Objects.isNull(filed)) {
+                return Mono.just(-1D);
+            }
+            return written(reactiveRedisTemplate.<Object, Object>opsForHash().increment(key, filed, increment), key);
+        }
+
+        public Flux<Object> hKeys(String key) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().keys(key);
+        }
+
+        public Flux<Object> hValues(String key) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().values(key);
+        }
+
+        /**
+         * 使用HSCAN游标遍历hash表中匹配matchPattern的域和值，下游请求时才取下一批
+         */
+        public Flux<Map.Entry<Object, Object>> hScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForHash().scan(key, scanOptions(matchPattern, batchSize));
+        }
+    }
+
+    /**
+     * 操作set
+     */
+    public class set {
+
+        public Mono<Long> sAdd(String key, String... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForSet().add(key, (Object[]) members);
+        }
+
+        public Flux<String> sMembers(String key) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().members(key).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<Boolean> sIsMember(String key, String member) {
+            if (Objects.isNull(key) || Objects.isNull(member)) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForSet().isMember(key, member);
+        }
+
+        public Mono<Long> sCard(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.just(-1L);
+            }
+            return reactiveRedisTemplate.opsForSet().size(key);
+        }
+
+        public Mono<Long> sRem(String key, Object... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return Mono.just(0L);
+            }
+            return reactiveRedisTemplate.opsForSet().remove(key, members);
+        }
+
+        public Mono<String> sRandMember(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().randomMember(key).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<String> sRandMember(String key, long count) {
+            if (Objects.isNull(key) || count <= 0) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().randomMembers(key, count).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<String> sPop(String key, long count) {
+            if (Objects.isNull(key) || count <= 0) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().pop(key, count).map(ReactiveRedisUtils::cast);
+        }
+
+        /**
+         * 使用SSCAN游标遍历集合中匹配matchPattern的元素，下游请求时才取下一批
+         */
+        public Flux<String> sScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().scan(key, scanOptions(matchPattern, batchSize)).map(ReactiveRedisUtils::cast);
+        }
+    }
+
+    /**
+     * 操作zset
+     */
+    public class zset {
+
+        public Mono<Boolean> sMove(String srcSet, String destinationSet, String member) {
+            if (Objects.isNull(srcSet) || Objects.isNull(destinationSet)) {
+                return Mono.just(false);
+            }
+            return reactiveRedisTemplate.opsForSet().move(srcSet, member, destinationSet);
+        }
+
+        public Flux<String> sDiff(String key, String... otherKeys) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().difference(key, Arrays.asList(otherKeys)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<String> sInter(String key, String... otherKeys) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().intersect(key, Arrays.asList(otherKeys)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<String> sUnion(String key, String... otherKeys) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForSet().union(key, Arrays.asList(otherKeys)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Mono<Long> zAdd(String key, Map<String, Double> map) {
+            if (Objects.isNull(key) || Objects.isNull(map) || map.isEmpty()) {
+                return Mono.just(0L);
+            }
+            List<ZSetOperations.TypedTuple<Object>> tuples = new ArrayList<>(map.size());
+            map.forEach((member, score) -> tuples.add(new DefaultTypedTuple<>(member, score)));
+            return reactiveRedisTemplate.opsForZSet().addAll(key, tuples);
+        }
+
+        public Flux<String> zRange(String key, long start, long end) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().range(key, closed(start, end)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<ScoredMember> zRangeWithScores(String key, long start, long end) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().rangeWithScores(key, closed(start, end)).map(ReactiveRedisUtils::scoredMember);
+        }
+
+        public Flux<String> zRevRange(String key, long start, long end) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().reverseRange(key, closed(start, end)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<ScoredMember> zRevRangeWithScores(String key, long start, long end) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().reverseRangeWithScores(key, closed(start, end)).map(ReactiveRedisUtils::scoredMember);
+        }
+
+        public Flux<String> zRangeByScore(String key, double min, double max) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().rangeByScore(key, closed(min, max)).map(ReactiveRedisUtils::cast);
+        }
+
+        public Flux<ScoredMember> zRangeByScoreWithScores(String key, double min, double max) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().rangeByScoreWithScores(key, closed(min, max)).map(ReactiveRedisUtils::scoredMember);
+        }
+
+        public Flux<ScoredMember> zRangeByScoreWithScores(String key, double min, double max, long offset, long count) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return Flux.empty();
+            }
+            RedisZSetCommands.Limit limit = RedisZSetCommands.Limit.limit().offset((int) offset).count((int) count);
+            return reactiveRedisTemplate.opsForZSet().rangeByScoreWithScores(key, closed(min, max), limit).map(ReactiveRedisUtils::scoredMember);
+        }
+
+        public Mono<Long> zRem(String key, String... members) {
+            if (Objects.isNull(key) || Objects.isNull(members) || members.length == 0) {
+                return Mono.just(0L);
+            }
+            return reactiveRedisTemplate.opsForZSet().remove(key, (Object[]) members);
+        }
+
+        public Mono<Long> zCard(String key) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return reactiveRedisTemplate.opsForZSet().size(key);
+        }
+
+        public Mono<Long> zCount(String key, double min, double max) {
+            if (Objects.isNull(key)) {
+                return Mono.just(0L);
+            }
+            return reactiveRedisTemplate.opsForZSet().count(key, closed(min, max));
+        }
+
+        public Mono<Long> zRank(String key, String member) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().rank(key, member);
+        }
+
+        public Mono<Long> zRevRank(String key, String member) {
+            if (Objects.isNull(key)) {
+                return Mono.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().reverseRank(key, member);
+        }
+
+        /**
+         * 使用ZSCAN游标遍历有序集合中匹配matchPattern的成员及score，下游请求时才取下一批
+         */
+        public Flux<ScoredMember> zScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Flux.empty();
+            }
+            return reactiveRedisTemplate.opsForZSet().scan(key, scanOptions(matchPattern, batchSize)).map(ReactiveRedisUtils::scoredMember);
+        }
+    }
+}
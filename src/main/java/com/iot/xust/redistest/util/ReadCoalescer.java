@@ -0,0 +1,208 @@
+package com.iot.xust.redistest.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 22:40 2026/10/18  2026
+ * @Description: 把并发的string.get合并成一次MGET、同一个hash上并发的hash.hGet合并成一次HMGET。
+ * 第一个到达的线程成为本批的发起者，等待windowMicros或凑满maxBatchSize个key后发出命令，再把结果分发给本批的每个调用者；
+ * 批内相同的key只读取一次。没有其他读取在进行时直接发出单条读取，不为等待窗口付出延迟
+ */
+public class ReadCoalescer {
+
+    /**
+     * string.get的所有key共用一个批次
+     */
+    private static final String VALUES = "";
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    /**
+     * 正在收集的批次：string为VALUES -> 批次，hash为key -> 批次
+     */
+    private final ConcurrentHashMap<String, Batch> values = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Batch> fields = new ConcurrentHashMap<>();
+
+    /**
+     * 正在进行中的读取数量
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * @param windowMicros 发起者等待其他读取加入的最长时间（微秒）
+     * @param maxBatchSize 一批最多携带的key数量，凑满后立即发出
+     */
+    public ReadCoalescer(long windowMicros, int maxBatchSize) {
+        if (windowMicros < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("windowMicros不能为负数，maxBatchSize必须大于0");
+        }
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @param key
+     * @param multiGet 用一条MGET读取一批key，返回与key顺序一致的值
+     * @return
+     */
+    String get(String key, Function<List<String>, List<?>> multiGet) {
+        return load(values, VALUES, key, multiGet);
+    }
+
+    /**
+     * @param key
+     * @param field
+     * @param multiGet 用一条HMGET读取key上的一批域，返回与域顺序一致的值
+     * @return
+     */
+    String hGet(String key, String field, Function<List<String>, List<?>> multiGet) {
+        return load(fields, key, field, multiGet);
+    }
+
+    private String load(ConcurrentHashMap<String, Batch> batches, String group, String item, Function<List<String>, List<?>> multiGet) {
+        boolean concurrent = active.getAndIncrement() > 0;
+        try {
+            for (; ; ) {
+                Batch created = new Batch(Thread.currentThread(), maxBatchSize);
+                Batch batch = batches.putIfAbsent(group, created);
+                boolean leader = batch == null;
+                if (leader) {
+                    batch = created;
+                }
+                CompletableFuture<String> result = batch.join(item);
+                if (result == null) {
+                    //批次已满或已发出，加入下一批
+                    batches.remove(group, batch);
+                    continue;
+                }
+                if (leader) {
+                    if (concurrent) {
+                        batch.await(windowNanos);
+                    }
+                    batches.remove(group, batch);
+                    execute(batch, multiGet);
+                } else if (batch.isFull()) {
+                    batches.remove(group, batch);
+                    LockSupport.unpark(batch.leader);
+                }
+                return await(result);
+            }
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private void execute(Batch batch, Function<List<String>, List<?>> multiGet) {
+        Map<String, CompletableFuture<String>> calls = batch.close();
+        List<String> items = new ArrayList<>(calls.keySet());
+        batchCount.increment();
+        coalescedCount.add(batch.callers - 1);
+        try {
+            List<?> results = multiGet.apply(items);
+            for (int i = 0; i < items.size(); i++) {
+                Object value = results == null || i >= results.size() ? null : results.get(i);
+                calls.get(items.get(i)).complete((String) value);
+            }
+        } catch (RuntimeException | Error e) {
+            calls.values().forEach(call -> call.completeExceptionally(e));
+        }
+    }
+
+    private static String await(CompletableFuture<String> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return 发出的MGET/HMGET数量
+     */
+    public long batchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return 搭上其他线程的批次、没有单独发出命令的读取数量
+     */
+    public long coalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    private static final class Batch {
+
+        final Thread leader;
+
+        private final int maxBatchSize;
+
+        private final Map<String, CompletableFuture<String>> calls = new LinkedHashMap<>();
+
+        private boolean closed;
+
+        int callers;
+
+        Batch(Thread leader, int maxBatchSize) {
+            this.leader = leader;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        /**
+         * @return 这个key的结果，批次已满或已发出时返回null
+         */
+        synchronized CompletableFuture<String> join(String item) {
+            if (closed || (calls.size() >= maxBatchSize && !calls.containsKey(item))) {
+                return null;
+            }
+            callers++;
+            return calls.computeIfAbsent(item, k -> new CompletableFuture<>());
+        }
+
+        synchronized boolean isFull() {
+            return calls.size() >= maxBatchSize;
+        }
+
+        /**
+         * 发起者等待窗口结束或批次凑满
+         */
+        void await(long windowNanos) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining = windowNanos;
+            while (remaining > 0 && !isFull()) {
+                LockSupport.parkNanos(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+
+        synchronized Map<String, CompletableFuture<String>> close() {
+            closed = true;
+            return calls;
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.iot.xust.redistest.util;
+
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 14:52 2026/10/18  2026
+ * @Description: 管道批量操作，由 {@link RedisUtils#pipelined} 创建，
+ * 所有命令只入队不等待回复，回调结束后一次性发送并按入队顺序回填结果
+ */
+public class RedisBatch {
+
+    private final RedisOperations<Object, String> operations;
+
+    /**
+     * 管道执行后对写过的key回调，用来让近端缓存失效
+     */
+    private final Consumer<String> invalidator;
+
+    private final Set<String> written = new LinkedHashSet<>();
+
+    /**
+     * 与管道中有回复的命令一一对应，setRange/lTrim/lSet/hMSet 等状态回复的命令不会出现在结果中
+     */
+    private final List<Response<?>> responses = new ArrayList<>();
+
+    public final string string = new string();
+
+    public final list list = new list();
+
+    public final hash hash = new hash();
+
+    public final set set = new set();
+
+    public final zset zset = new zset();
+
+    RedisBatch(RedisOperations<Object, String> operations, Consumer<String> invalidator) {
+        this.operations = operations;
+        this.invalidator = invalidator;
+    }
+
+    private <T> Response<T> queued() {
+        Response<T> response = new Response<>();
+        responses.add(response);
+        return response;
+    }
+
+    /**
+     * 不需要发送命令、结果已经确定的Response，不占用管道结果中的位置
+     */
+    private static <T> Response<T> done(T value) {
+        Response<T> response = new Response<>();
+        response.set(value);
+        return response;
+    }
+
+    private static List<Object> keyList(String[] keys) {
+        return new ArrayList<>(Arrays.asList(keys));
+    }
+
+    /**
+     * 管道执行完毕后按顺序回填结果
+     *
+     * @param results executePipelined的返回值
+     */
+    void complete(List<Object> results) {
+        if (results.size() != responses.size()) {
+            throw new IllegalStateException("管道结果数量(" + results.size() + ")与入队命令数量(" + responses.size() + ")不一致");
+        }
+        for (int i = 0; i < results.size(); i++) {
+            responses.get(i).set(results.get(i));
+        }
+    }
+
+    /**
+     * 管道执行之后（无论成功与否）让写过的key在近端缓存中失效
+     */
+    void invalidateWritten() {
+        written.forEach(invalidator);
+    }
+
+    /**
+     * 管道中一条命令的结果，只有在 {@link RedisUtils#pipelined} 返回之后才能取值
+     *
+     * @param <T>
+     */
+    public static final class Response<T> {
+
+        private T value;
+
+        private boolean done;
+
+        private Response() {
+        }
+
+        @SuppressWarnings("unchecked")
+        private void set(Object value) {
+            this.value = (T) value;
+            this.done = true;
+        }
+
+        public T get() {
+            if (!done) {
+                throw new IllegalStateException("管道尚未执行，结果不可用");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 设置过期时间（秒），与{@link RedisUtils#expire(String, long)}一致，timeout小于等于0时不发送命令，结果为false
+     */
+    public Response<Boolean> expire(String key, long timeout) {
+        if (timeout <= 0) {
+            return done(false);
+        }
+        Response<Boolean> response = queued();
+        operations.expire(key, timeout, TimeUnit.SECONDS);
+        return response;
+    }
+
+    /**
+     * 按过期策略设置过期时间，发送PEXPIRE
+     */
+    public Response<Boolean> expire(String key, ExpiryPolicy policy) {
+        Response<Boolean> response = queued();
+        operations.expire(key, policy.ttlMillis(key), TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    public Response<Long> ttl(String key) {
+        Response<Long> response = queued();
+        operations.getExpire(key, TimeUnit.SECONDS);
+        return response;
+    }
+
+    public Response<Boolean> exists(String key) {
+        Response<Boolean> response = queued();
+        operations.hasKey(key);
+        return response;
+    }
+
+    public Response<DataType> type(String key) {
+        Response<DataType> response = queued();
+        operations.type(key);
+        return response;
+    }
+
+    /**
+     * 删除一个或多个key，只发送一条DEL
+     *
+     * @param keys
+     * @return 实际删除的key的数量
+     */
+    public Response<Long> del(String... keys) {
+        Response<Long> response = queued();
+        operations.delete(keyList(keys));
+        Collections.addAll(written, keys);
+        return response;
+    }
+
+    /**
+     * 删除一个或多个key，value的内存由服务端后台释放
+     *
+     * @param keys
+     * @return 实际删除的key的数量
+     */
+    public Response<Long> unlink(String... keys) {
+        Response<Long> response = queued();
+        operations.unlink(keyList(keys));
+        Collections.addAll(written, keys);
+        return response;
+    }
+
+    /**
+     * 操作string
+     */
+    public class string {
+
+        public Response<Boolean> set(String key, String value) {
+            Response<Boolean> response = queued();
+            operations.opsForValue().set(key, value);
+            written.add(key);
+            return response;
+        }
+
+        /**
+         * @param command ex表示秒，px表示毫秒
+         */
+        public Response<Boolean> set(String key, String value, String command, long timout) {
+            TimeUnit unit = "px".equals(command.toLowerCase()) ? TimeUnit.MILLISECONDS : TimeUnit.SECONDS;
+            Response<Boolean> response = queued();
+            operations.opsForValue().set(key, value, timout, unit);
+            written.add(key);
+            return response;
+        }
+
+        /**
+         * 按过期策略写入，发送 PSETEX key ttl value
+         */
+        public Response<Boolean> set(String key, String value, ExpiryPolicy policy) {
+            Response<Boolean> response = queued();
+            operations.opsForValue().set(key, value, policy.ttlMillis(key), TimeUnit.MILLISECONDS);
+            written.add(key);
+            return response;
+        }
+
+        /**
+         * @param isKeyAbsent true表示nx   false表示xx
+         */
+        public Response<Boolean> set(String key, String value, boolean isKeyAbsent) {
+            Response<Boolean> response = queued();
+            if (isKeyAbsent) {
+                operations.opsForValue().setIfAbsent(key, value);
+            } else {
+                operations.opsForValue().setIfPresent(key, value);
+            }
+            written.add(key);
+            return response;
+        }
+
+        public Response<Boolean> mset(Map<String, String> map) {
+            Response<Boolean> response = queued();
+            operations.opsForValue().multiSet(map);
+            map.keySet().forEach(written::add);
+            return response;
+        }
+
+        public Response<Boolean> msetnx(Map<String, String> map) {
+            Response<Boolean> response = queued();
+            operations.opsForValue().multiSetIfAbsent(map);
+            map.keySet().forEach(written::add);
+            return response;
+        }
+
+        public Response<String> get(String key) {
+            Response<String> response = queued();
+            operations.opsForValue().get(key);
+            return response;
+        }
+
+        public Response<List<String>> mget(Collection<String> keys) {
+            Response<List<String>> response = queued();
+            operations.opsForValue().multiGet(new ArrayList<>(keys));
+            return response;
+        }
+
+        public Response<String> getRange(String key, long start, long stop) {
+            Response<String> response = queued();
+            operations.opsForValue().get(key, start, stop);
+            return response;
+        }
+
+        public Response<Long> strlen(String key) {
+            Response<Long> response = queued();
+            operations.opsForValue().size(key);
+            return response;
+        }
+
+        public Response<Long> append(String key, String s) {
+            Response<Long> response = queued();
+            operations.opsForValue().append(key, s);
+            written.add(key);
+            return response;
+        }
+
+        public Response<Long> incr(String key) {
+            return incrBy(key, 1);
+        }
+
+        public Response<Long> incrBy(String key, long increment) {
+            Response<Long> response = queued();
+            operations.opsForValue().increment(key, increment);
+            written.add(key);
+            return response;
+        }
+
+        public Response<Long> decr(String key) {
+            return decrBy(key, 1);
+        }
+
+        public Response<Long> decrBy(String key, long decrement) {
+            Response<Long> response = queued();
+            operations.opsForValue().decrement(key, decrement);
+            written.add(key);
+            return response;
+        }
+
+        /**
+         * SETRANGE是状态回复，不占用结果位置
+         */
+        public void setRange(String key, long offset, String value) {
+            operations.opsForValue().set(key, value, offset);
+            written.add(key);
+        }
+    }
+
+    /**
+     * 操作list
+     */
+    public class list {
+
+        public Response<Long> lPush(String key, String value) {
+            Response<Long> response = queued();
+            operations.opsForList().leftPush(key, value);
+            return response;
+        }
+
+        public Response<Long> lPush(String key, String... value) {
+            Response<Long> response = queued();
+            operations.opsForList().leftPushAll(key, value);
+            return response;
+        }
+
+        public Response<Long> lPush(String key, Collection<String> value) {
+            Response<Long> response = queued();
+            operations.opsForList().leftPushAll(key, value);
+            return response;
+        }
+
+        public Response<Long> lPushX(String key, String value) {
+            Response<Long> response = queued();
+            operations.opsForList().leftPushIfPresent(key, value);
+            return response;
+        }
+
+        public Response<Long> rPush(String key, String value) {
+            Response<Long> response = queued();
+            operations.opsForList().rightPush(key, value);
+            return response;
+        }
+
+        public Response<Long> rPush(String key, String... value) {
+            Response<Long> response = queued();
+            operations.opsForList().rightPushAll(key, value);
+            return response;
+        }
+
+        public Response<String> lPop(String key) {
+            Response<String> response = queued();
+            operations.opsForList().leftPop(key);
+            return response;
+        }
+
+        public Response<String> rPop(String key) {
+            Response<String> response = queued();
+            operations.opsForList().rightPop(key);
+            return response;
+        }
+
+        public Response<List<String>> lRange(String key, long start, long stop) {
+            Response<List<String>> response = queued();
+            operations.opsForList().range(key, start, stop);
+            return response;
+        }
+
+        public Response<String> rPopLPush(String srckey, String destKey) {
+            Response<String> response = queued();
+            operations.opsForList().rightPopAndLeftPush(srckey, destKey);
+            return response;
+        }
+
+        public Response<Long> llen(String key) {
+            Response<Long> response = queued();
+            operations.opsForList().size(key);
+            return response;
+        }
+
+        public Response<Long> lRem(String key, long count, String value) {
+            Response<Long> response = queued();
+            operations.opsForList().remove(key, count, value);
+            return response;
+        }
+
+        /**
+         * LTRIM是状态回复，不占用结果位置
+         */
+        public void lTrim(String key, long start, long stop) {
+            operations.opsForList().trim(key, start, stop);
+        }
+
+        public Response<String> lIndex(String key, long index) {
+            Response<String> response = queued();
+            operations.opsForList().index(key, index);
+            return response;
+        }
+
+        /**
+         * @param command before或after
+         */
+        public Response<Long> lInsert(String key, String command, String piovt, String value) {
+            Response<Long> response = queued();
+            if ("before".equals(command.toLowerCase())) {
+                operations.opsForList().leftPush(key, piovt, value);
+            } else {
+                operations.opsForList().rightPush(key, piovt, value);
+            }
+            return response;
+        }
+
+        /**
+         * LSET是状态回复，不占用结果位置
+         */
+        public void lSet(String key, long index, String value) {
+            operations.opsForList().set(key, index, value);
+        }
+    }
+
+    /**
+     * 操作hash
+     */
+    public class hash {
+
+        public Response<Boolean> hSet(String key, String filed, String value) {
+            Response<Boolean> response = queued();
+            operations.opsForHash().put(key, filed, value);
+            written.add(key);
+            return response;
+        }
+
+        /**
+         * HMSET是状态回复，不占用结果位置
+         */
+        public void hMSet(String key, Map<String, Object> map) {
+            operations.opsForHash().putAll(key, map);
+            written.add(key);
+        }
+
+        public Response<Boolean> hSetNX(String key, String filed, String value) {
+            Response<Boolean> response = queued();
+            operations.opsForHash().putIfAbsent(key, filed, value);
+            written.add(key);
+            return response;
+        }
+
+        public Response<String> hGet(String key, String filed) {
+            Response<String> response = queued();
+            operations.opsForHash().get(key, filed);
+            return response;
+        }
+
+        public Response<Map<Object, Object>> hGetAll(String key) {
+            Response<Map<Object, Object>> response = queued();
+            operations.opsForHash().entries(key);
+            return response;
+        }
+
+        public Response<List<Object>> hMGet(String key, Object... filed) {
+            Response<List<Object>> response = queued();
+            operations.opsForHash().multiGet(key, Arrays.asList(filed));
+            return response;
+        }
+
+        public Response<Boolean> hExists(String key, String filed) {
+            Response<Boolean> response = queued();
+            operations.opsForHash().hasKey(key, filed);
+            return response;
+        }
+
+        public Response<Long> hLen(String key) {
+            Response<Long> response = queued();
+            operations.opsForHash().size(key);
+            return response;
+        }
+
+        public Response<Long> hStrLen(String key, String filed) {
+            Response<Long> response = queued();
+            operations.opsForHash().lengthOfValue(key, filed);
+            return response;
+        }
+
+        public Response<Long> hIncrBy(String key, String filed, long increment) {
+            Response<Long> response = queued();
+            operations.opsForHash().increment(key, filed, increment);
+            written.add(key);
+            return response;
+        }
+
+        public Response<Double> hIncrByFloat(String key, String filed, double increment) {
+            Response<Double> response = queued();
+            operations.opsForHash().increment(key, filed, increment);
+            written.add(key);
+            return response;
+        }
+
+        public Response<Set<Object>> hKeys(String key) {
+            Response<Set<Object>> response = queued();
+            operations.opsForHash().keys(key);
+            return response;
+        }
+
+        public Response<List<Object>> hValues(String key) {
+            Response<List<Object>> response = queued();
+            operations.opsForHash().values(key);
+            return response;
+        }
+    }
+
+    /**
+     * 操作set
+     */
+    public class set {
+
+        public Response<Long> sAdd(String key, String... members) {
+            Response<Long> response = queued();
+            operations.opsForSet().add(key, members);
+            return response;
+        }
+
+        public Response<Set<String>> sMembers(String key) {
+            Response<Set<String>> response = queued();
+            operations.opsForSet().members(key);
+            return response;
+        }
+
+        public Response<Boolean> sIsMember(String key, String member) {
+            Response<Boolean> response = queued();
+            operations.opsForSet().isMember(key, member);
+            return response;
+        }
+
+        public Response<Long> sCard(String key) {
+            Response<Long> response = queued();
+            operations.opsForSet().size(key);
+            return response;
+        }
+
+        public Response<Long> sRem(String key, Object... members) {
+            Response<Long> response = queued();
+            operations.opsForSet().remove(key, members);
+            return response;
+        }
+
+        public Response<String> sRandMember(String key) {
+            Response<String> response = queued();
+            operations.opsForSet().randomMember(key);
+            return response;
+        }
+
+        public Response<List<String>> sRandMember(String key, long count) {
+            Response<List<String>> response = queued();
+            operations.opsForSet().randomMembers(key, count);
+            return response;
+        }
+
+        public Response<List<String>> sPop(String key, long count) {
+            Response<List<String>> response = queued();
+            operations.opsForSet().pop(key, count);
+            return response;
+        }
+    }
+
+    /**
+     * 操作zset
+     */
+    public class zset {
+
+        public Response<Boolean> sMove(String srcSet, String destinationSet, String member) {
+            Response<Boolean> response = queued();
+            operations.opsForSet().move(srcSet, destinationSet, member);
+            return response;
+        }
+
+        public Response<Set<String>> sDiff(String key, String... otherKeys) {
+            Response<Set<String>> response = queued();
+            operations.opsForSet().difference(key, keyList(otherKeys));
+            return response;
+        }
+
+        public Response<Set<String>> sInter(String key, String... otherKeys) {
+            Response<Set<String>> response = queued();
+            operations.opsForSet().intersect(key, keyList(otherKeys));
+            return response;
+        }
+
+        public Response<Set<String>> sUnion(String key, String... otherKeys) {
+            Response<Set<String>> response = queued();
+            operations.opsForSet().union(key, keyList(otherKeys));
+            return response;
+        }
+
+        public Response<Long> zAdd(String key, Map<String, Double> map) {
+            Set<ZSetOperations.TypedTuple<String>> set = new HashSet<>();
+            map.forEach((k, v) -> set.add(new DefaultTypedTuple<>(k, v)));
+            Response<Long> response = queued();
+            operations.opsForZSet().add(key, set);
+            return response;
+        }
+
+        public Response<Set<?>> zRange(String key, long start, long end, boolean withscore) {
+            Response<Set<?>> response = queued();
+            if (withscore) {
+                operations.opsForZSet().rangeWithScores(key, start, end);
+            } else {
+                operations.opsForZSet().range(key, start, end);
+            }
+            return response;
+        }
+
+        public Response<Set<?>> zRevRange(String key, long start, long end, boolean withscore) {
+            Response<Set<?>> response = queued();
+            if (withscore) {
+                operations.opsForZSet().reverseRangeWithScores(key, start, end);
+            } else {
+                operations.opsForZSet().reverseRange(key, start, end);
+            }
+            return response;
+        }
+
+        public Response<Set<?>> zRangeByScore(String key, double min, double max, boolean withscore) {
+            Response<Set<?>> response = queued();
+            if (withscore) {
+                operations.opsForZSet().rangeByScoreWithScores(key, min, max);
+            } else {
+                operations.opsForZSet().rangeByScore(key, min, max);
+            }
+            return response;
+        }
+
+        public Response<Long> zRem(String key, String... members) {
+            Response<Long> response = queued();
+            operations.opsForZSet().remove(key, (Object[]) members);
+            return response;
+        }
+
+        public Response<Long> zCard(String key) {
+            Response<Long> response = queued();
+            operations.opsForZSet().size(key);
+            return response;
+        }
+
+        public Response<Long> zCount(String key, double min, double max) {
+            Response<Long> response = queued();
+            operations.opsForZSet().count(key, min, max);
+            return response;
+        }
+
+        public Response<Long> zRank(String key, String member) {
+            Response<Long> response = queued();
+            operations.opsForZSet().rank(key, member);
+            return response;
+        }
+
+        public Response<Long> zRevRank(String key, String member) {
+            Response<Long> response = queued();
+            operations.opsForZSet().reverseRank(key, member);
+            return response;
+        }
+    }
+}
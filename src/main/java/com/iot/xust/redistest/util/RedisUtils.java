@@ -1,15 +1,43 @@
 package com.iot.xust.redistest.util;
 
+import com.iot.xust.redistest.codec.BinaryValueCodec;
+import com.iot.xust.redistest.metrics.InstrumentedRedisConnectionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.validation.constraints.NotBlank;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @Author: HuangXin
@@ -22,6 +50,18 @@ public class RedisUtils {
     @Autowired
     private RedisTemplate<Object, String> redisTemplate;
 
+    /**
+     * 近端缓存，只有配置了redis.near-cache.enabled=true时才存在
+     */
+    @Autowired(required = false)
+    private NearCache nearCache;
+
+    /**
+     * 合并并发的单key读取，只有配置了redis.coalesce.enabled=true时才存在
+     */
+    @Autowired(required = false)
+    private ReadCoalescer readCoalescer;
+
     public final string string = new string();
 
     public final list list = new list();
@@ -32,6 +72,233 @@ public class RedisUtils {
 
     public final zset zset = new zset();
 
+    /**
+     * 多key命令每次最多携带的key数量，避免单条命令过大阻塞服务端
+     */
+    public static final int KEY_CHUNK_SIZE = 500;
+
+    /**
+     * 变长写命令（LPUSH/RPUSH等）每次最多携带的元素数量
+     */
+    public static final int VALUE_CHUNK_SIZE = 1000;
+
+    /**
+     * 批量zAdd时一个管道中最多未读取回复的ZADD数量
+     */
+    private static final int ZADD_PIPELINE_CHUNKS = 64;
+
+    /**
+     * SCAN系列命令默认的COUNT提示值
+     */
+    public static final int SCAN_COUNT = 1000;
+
+    /**
+     * getOrLoad跨节点租约的key后缀
+     */
+    public static final String LEASE_SUFFIX = ":lease";
+
+    /**
+     * getOrLoad保存旧值的key后缀
+     */
+    public static final String STALE_SUFFIX = ":stale";
+
+    /**
+     * 等待其他节点加载时两次读取之间的间隔（毫秒）
+     */
+    private static final long LEASE_POLL_MILLIS = 20L;
+
+    /**
+     * 只删除仍属于自己的租约，避免加载超时后删掉其他节点刚抢到的租约
+     */
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    /**
+     * 只取集合运算结果数量时使用的临时key前缀，临时key在同一个脚本中写入并用UNLINK删除。
+     * 运算结果仍会在服务端完整地生成一次，占用与结果大小相当的内存和CPU，省掉的只是成员的网络传输和客户端反序列化
+     */
+    private static final String CARD_KEY_PREFIX = "tmp:card:";
+
+    private static final RedisScript<Long> SDIFF_CARD = storeCardScript("SDIFFSTORE", false);
+
+    private static final RedisScript<Long> SINTER_CARD = storeCardScript("SINTERSTORE", false);
+
+    private static final RedisScript<Long> SUNION_CARD = storeCardScript("SUNIONSTORE", false);
+
+    private static final RedisScript<Long> ZINTER_CARD = storeCardScript("ZINTERSTORE", true);
+
+    private static final RedisScript<Long> ZUNION_CARD = storeCardScript("ZUNIONSTORE", true);
+
+    /**
+     * KEYS[1]为临时key，其余为参与运算的key。临时key用UNLINK删除，大结果集的内存由服务端后台释放，
+     * 不阻塞脚本；Redis 4.0以下没有UNLINK时退回DEL
+     *
+     * @param command
+     * @param numKeys 命令是否需要在目标key之后给出参与运算的key数量（ZINTERSTORE/ZUNIONSTORE）
+     */
+    private static RedisScript<Long> storeCardScript(String command, boolean numKeys) {
+        String call = "redis.call('" + command + "', KEYS[1], " + (numKeys ? "#KEYS - 1, " : "") + "unpack(KEYS, 2))";
+        return new DefaultRedisScript<>("local n = " + call + " "
+                + "if not pcall(redis.call, 'UNLINK', KEYS[1]) then redis.call('DEL', KEYS[1]) end "
+                + "return n", Long.class);
+    }
+
+    /**
+     * KEYS[1]为有序集合，ARGV[1]为成员，ARGV[2]为前后各取的成员数量；
+     * 返回 {第一个成员的排名, 成员1, score1, 成员2, score2, ...}，成员不存在时返回空列表
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REV_RANGE_AROUND = new DefaultRedisScript<>(
+            "local rank = redis.call('ZREVRANK', KEYS[1], ARGV[1]) "
+                    + "if not rank then return {} end "
+                    + "local radius = tonumber(ARGV[2]) "
+                    + "local from = math.max(rank - radius, 0) "
+                    + "local range = redis.call('ZREVRANGE', KEYS[1], from, rank + radius, 'WITHSCORES') "
+                    + "table.insert(range, 1, from) "
+                    + "return range", List.class);
+
+    /**
+     * KEYS[i]为计数器的key，ARGV[2i-1]为空时对string执行INCRBY，否则去掉首字节后作为hash的域执行HINCRBY，ARGV[2i]为增量；
+     * 用pcall逐条执行，返回每条命令的新值或服务端的错误信息，一条命令出错不影响其他命令
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> INCR_BY_ALL = new DefaultRedisScript<>(
+            "local results = {} "
+                    + "for i = 1, #KEYS do "
+                    + "local field = ARGV[2 * i - 1] "
+                    + "local r "
+                    + "if field == '' then r = redis.pcall('INCRBY', KEYS[i], ARGV[2 * i]) "
+                    + "else r = redis.pcall('HINCRBY', KEYS[i], string.sub(field, 2), ARGV[2 * i]) end "
+                    + "if type(r) == 'table' then results[i] = r.err else results[i] = r end "
+                    + "end "
+                    + "return results", List.class);
+
+    /**
+     * 按字节操作string的脚本共用的开头，这些脚本也供{@link AsyncRedisUtils}使用：值以{@link BinaryValueCodec#TEXT}开头时跳过这一个字节（off为1），
+     * 以其他类型标记或压缩标记开头时不是可以按字节操作的字符串，报错而不是破坏数据
+     */
+    private static final String TEXT_HEADER = "local h = string.byte(redis.call('GETRANGE', KEYS[1], 0, 0)) "
+            + "local off = 0 "
+            + "if h == " + BinaryValueCodec.TEXT + " then off = 1 "
+            + "elseif h and h >= 1 and h <= " + BinaryValueCodec.MAX_RESERVED + " then "
+            + "return redis.error_reply('ERR value is not a plain string') end ";
+
+    static final RedisScript<Long> TEXT_STRLEN = new DefaultRedisScript<>(
+            TEXT_HEADER + "return redis.call('STRLEN', KEYS[1]) - off", Long.class);
+
+    /**
+     * ARGV[1]、ARGV[2]为去掉头部后的下标，与GETRANGE的语义一致
+     */
+    static final RedisScript<byte[]> TEXT_GETRANGE = new DefaultRedisScript<>(
+            TEXT_HEADER
+                    + "local len = redis.call('STRLEN', KEYS[1]) - off "
+                    + "local s = tonumber(ARGV[1]) local e = tonumber(ARGV[2]) "
+                    + "if s < 0 then s = len + s end "
+                    + "if e < 0 then e = len + e end "
+                    + "if s < 0 then s = 0 end "
+                    + "if e < 0 then e = 0 end "
+                    + "if e >= len then e = len - 1 end "
+                    + "if s > e or len == 0 then return '' end "
+                    + "return redis.call('GETRANGE', KEYS[1], s + off, e + off)", byte[].class);
+
+    /**
+     * ARGV[1]为追加的UTF-8，ARGV[2]为整个值按编解码写入的形式，key不存在时按string.set写入
+     */
+    static final RedisScript<Long> TEXT_APPEND = new DefaultRedisScript<>(
+            TEXT_HEADER
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then "
+                    + "redis.call('SET', KEYS[1], ARGV[2]) return string.len(ARGV[1]) end "
+                    + "return redis.call('APPEND', KEYS[1], ARGV[1]) - off", Long.class);
+
+    /**
+     * ARGV[1]为去掉头部后的偏移，ARGV[2]为写入的UTF-8，ARGV[3]为ARGV[2]按编解码写入的形式。
+     * key不存在且偏移为0时按string.set写入；在没有头部的值开头写入需要头部的内容时补上头部，保留原有的过期时间
+     */
+    static final RedisScript<Long> TEXT_SETRANGE = new DefaultRedisScript<>(
+            TEXT_HEADER
+                    + "local offset = tonumber(ARGV[1]) "
+                    + "if offset == 0 and ARGV[2] ~= '' then "
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then "
+                    + "redis.call('SET', KEYS[1], ARGV[3]) return string.len(ARGV[2]) end "
+                    + "if off == 0 and string.byte(ARGV[3]) == " + BinaryValueCodec.TEXT + " then "
+                    + "local ttl = redis.call('PTTL', KEYS[1]) "
+                    + "redis.call('SETRANGE', KEYS[1], 0, ARGV[2]) "
+                    + "local v = string.char(" + BinaryValueCodec.TEXT + ") .. redis.call('GET', KEYS[1]) "
+                    + "if ttl > 0 then redis.call('SET', KEYS[1], v, 'PX', ttl) else redis.call('SET', KEYS[1], v) end "
+                    + "return string.len(v) - 1 end "
+                    + "end "
+                    + "return redis.call('SETRANGE', KEYS[1], offset + off, ARGV[2]) - off", Long.class);
+
+    /**
+     * 脚本参数和返回值已是字节数组时原样传递，不经过值编解码，{@link ReactiveRedisUtils}执行脚本时也使用它
+     */
+    static final RedisSerializer<Object> RAW = new RedisSerializer<Object>() {
+        @Override
+        public byte[] serialize(Object value) {
+            return (byte[]) value;
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    private final SingleFlight<String> stringFlights = new SingleFlight<>();
+
+    private final SingleFlight<String> hashFlights = new SingleFlight<>();
+
+    /**
+     * getOrRefresh默认的提前刷新系数，大于1时更早刷新，小于1时更晚刷新
+     */
+    public static final double XFETCH_BETA = 1.0D;
+
+    private static final String XFETCH_VALUE = "value";
+
+    private static final String XFETCH_DELTA = "delta";
+
+    private static final String XFETCH_EXPIRY = "expiry";
+
+    private static final List<Object> XFETCH_FIELDS = Arrays.asList(XFETCH_VALUE, XFETCH_DELTA, XFETCH_EXPIRY);
+
+    /**
+     * key的物理过期比逻辑过期晚的时间至少是计算耗时的这么多倍，让到达逻辑过期后的读取仍能拿到旧值并触发刷新，而不是同步加载
+     */
+    private static final long XFETCH_GRACE_DELTAS = 10L;
+
+    /**
+     * key的物理过期比逻辑过期晚的最短时间（毫秒）
+     */
+    private static final long XFETCH_MIN_GRACE_MILLIS = 1000L;
+
+    private final SingleFlight<String> refreshFlights = new SingleFlight<>();
+
+    /**
+     * 正在后台刷新的key，同一个key同一时刻只提交一次刷新
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 执行getOrRefresh后台刷新的线程池，队列满时放弃本次刷新，下一次读取会再次尝试
+     */
+    private final ThreadPoolExecutor refreshExecutor = refreshExecutor();
+
+    private static ThreadPoolExecutor refreshExecutor() {
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1024), runnable -> {
+            Thread thread = new Thread(runnable, "redis-refresh-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
 
     /**
      * 设置某个key的过期时间
@@ -53,6 +320,62 @@ public class RedisUtils {
     }
 
 
+    /**
+     * 按过期策略设置某个key的过期时间
+     *
+     * @param key
+     * @param policy
+     * @return
+     */
+    public boolean expire(String key, ExpiryPolicy policy) {
+        if (Objects.isNull(key) || Objects.isNull(policy)) {
+            return false;
+        }
+        Boolean res = redisTemplate.expire(key, policy.ttlMillis(key), TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(res);
+    }
+
+    /**
+     * 在一个管道中为多个key分别设置过期时间
+     *
+     * @param timeouts key -&gt; 过期时间（秒），与{@link #expire(String, long)}一致，为null或小于等于0的key被跳过
+     * @return 成功设置了过期时间的key的数量
+     */
+    public long expireAll(Map<String, Long> timeouts) {
+        if (Objects.isNull(timeouts) || timeouts.isEmpty()) {
+            return 0L;
+        }
+        return countTrue(pipelined(batch -> timeouts.forEach((key, timeout) -> {
+            if (Objects.nonNull(key) && Objects.nonNull(timeout) && timeout > 0) {
+                batch.expire(key, timeout);
+            }
+        })));
+    }
+
+    /**
+     * 在一个管道中按过期策略为多个key分别设置过期时间
+     *
+     * @param keys
+     * @param policy
+     * @return 成功设置了过期时间的key的数量
+     */
+    public long expireAll(Collection<String> keys, ExpiryPolicy policy) {
+        if (Objects.isNull(keys) || keys.isEmpty() || Objects.isNull(policy)) {
+            return 0L;
+        }
+        return countTrue(pipelined(batch -> keys.forEach(key -> batch.expire(key, policy))));
+    }
+
+    private static long countTrue(List<Object> results) {
+        long count = 0L;
+        for (Object result : results) {
+            if (Boolean.TRUE.equals(result)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /***
      * 查看某个key的过期时间
      * @param key
@@ -98,12 +421,236 @@ public class RedisUtils {
 
     /**
      * 获得当前数据库中的所有key
+     * 内部使用SCAN遍历，不会像KEYS那样阻塞Redis，但结果仍然全部放在内存中，
+     * key数量很多时请使用{@link #scanKeys(String, long)}
      *
      * @param patten
-     * @return
+     * @return patten为null时返回null
      */
+    @Deprecated
     public Set<Object> allKeys(Object patten) {
-        return redisTemplate.keys(patten);
+        if (Objects.isNull(patten)) {
+            return null;
+        }
+        try (Stream<String> keys = scanKeys(String.valueOf(patten), SCAN_COUNT)) {
+            return keys.collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    /**
+     * 使用SCAN游标惰性遍历匹配pattern的key，任何时刻内存中最多只有一批key。
+     * SCAN可能返回重复的key；提前结束遍历时必须关闭返回的Stream以归还连接，推荐使用try-with-resources
+     *
+     * @param pattern 匹配模式，如 user:*
+     * @param count   每批返回数量的提示值(COUNT)
+     * @return
+     */
+    public Stream<String> scanKeys(String pattern, long count) {
+        ScanOptions options = scanOptions(pattern, count);
+        Cursor<byte[]> cursor = redisTemplate.executeWithStickyConnection(connection -> connection.scan(options));
+        return ScanStreams.of(cursor, raw -> (String) redisTemplate.getKeySerializer().deserialize(raw));
+    }
+
+    /**
+     * 经由本工具类写入key之后让近端缓存中的副本立即失效
+     *
+     * @param key
+     */
+    private void invalidate(String key) {
+        if (Objects.nonNull(nearCache)) {
+            nearCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 从Redis读取string，开启了请求合并时与其他线程的并发读取合并成一次MGET
+     */
+    private String read(String key) {
+        if (Objects.isNull(readCoalescer)) {
+            return redisTemplate.opsForValue().get(key);
+        }
+        return readCoalescer.get(key, keys -> redisTemplate.opsForValue().multiGet(new ArrayList<Object>(keys)));
+    }
+
+    /**
+     * 从Redis读取hash的域，开启了请求合并时与同一个hash上的并发读取合并成一次HMGET
+     */
+    private String read(String key, String filed) {
+        if (Objects.isNull(readCoalescer)) {
+            return (String) redisTemplate.opsForHash().get(key, filed);
+        }
+        return readCoalescer.hGet(key, filed, fileds -> redisTemplate.opsForHash().multiGet(key, new ArrayList<Object>(fileds)));
+    }
+
+    /**
+     * 开启了命令统计时把由多条命令组成的操作作为整体计时，见{@link com.iot.xust.redistest.metrics.RedisCommandMetrics#time}
+     *
+     * @param facade    内部类名
+     * @param method    方法名
+     * @param operation
+     * @return
+     */
+    private <T> T timed(String facade, String method, Supplier<T> operation) {
+        if (redisTemplate.getConnectionFactory() instanceof InstrumentedRedisConnectionFactory) {
+            return ((InstrumentedRedisConnectionFactory) redisTemplate.getConnectionFactory()).getMetrics()
+                    .time(facade, method, operation);
+        }
+        return operation.get();
+    }
+
+    /**
+     * 在一次脚本调用中执行一批INCRBY/HINCRBY，供{@link CounterAggregator}写入聚合后的增量
+     *
+     * @param keys
+     * @param fields 与keys一一对应，string计数器为null
+     * @param deltas 与keys一一对应
+     * @return 与keys顺序一致，执行成功为Long类型的新值，被服务端拒绝为错误信息
+     */
+    @SuppressWarnings("unchecked")
+    List<Object> incrByAll(List<String> keys, List<String> fields, List<Long> deltas) {
+        RedisSerializer<Object> fieldSerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        Object[] args = new Object[keys.size() * 2];
+        for (int i = 0; i < keys.size(); i++) {
+            String field = fields.get(i);
+            if (Objects.isNull(field)) {
+                args[2 * i] = new byte[0];
+            } else {
+                byte[] rawField = fieldSerializer.serialize(field);
+                byte[] arg = new byte[rawField.length + 1];
+                arg[0] = 'h';
+                System.arraycopy(rawField, 0, arg, 1, rawField.length);
+                args[2 * i] = arg;
+            }
+            args[2 * i + 1] = index(deltas.get(i));
+        }
+        List<Object> results = redisTemplate.execute(INCR_BY_ALL, RAW, (RedisSerializer<List>) (RedisSerializer<?>) RAW,
+                new ArrayList<Object>(keys), args);
+        keys.forEach(this::invalidate);
+        return results;
+    }
+
+    /**
+     * 值按编解码写入Redis的字节，{@link Leaderboard}用它按Redis的顺序比较同分的成员
+     */
+    @SuppressWarnings("unchecked")
+    byte[] rawValue(String value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<Object>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    private static final byte[] WITHSCORES = "WITHSCORES".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] LIMIT = "LIMIT".getBytes(StandardCharsets.US_ASCII);
+
+    private static byte[] index(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] score(double value) {
+        if (Double.isInfinite(value)) {
+            return (value > 0 ? "+inf" : "-inf").getBytes(StandardCharsets.US_ASCII);
+        }
+        return Double.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 不超过一批时只发送一条变长的LPUSH/RPUSH，是原子的；超过一批时各批按顺序在同一个管道中发送，
+     * 只需一次网络往返，但批与批之间可能穿插其他客户端的写入。RedisUtils.list与独立的list共用
+     *
+     * @param redisTemplate
+     * @param key
+     * @param values
+     * @param left
+     * @return 最后一批写入后list的长度
+     */
+    static long pushAll(RedisTemplate<Object, String> redisTemplate, String key, String[] values, boolean left) {
+        if (values.length == 0) {
+            Long size = redisTemplate.opsForList().size(key);
+            return Objects.isNull(size) ? 0L : size;
+        }
+        if (values.length <= RedisUtils.VALUE_CHUNK_SIZE) {
+            Long size = left ? redisTemplate.opsForList().leftPushAll(key, values) : redisTemplate.opsForList().rightPushAll(key, values);
+            return Objects.isNull(size) ? -1L : size;
+        }
+        List<Object> sizes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ListOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForList();
+                for (int from = 0; from < values.length; from += RedisUtils.VALUE_CHUNK_SIZE) {
+                    String[] chunk = Arrays.copyOfRange(values, from, Math.min(from + RedisUtils.VALUE_CHUNK_SIZE, values.length));
+                    if (left) {
+                        ops.leftPushAll(key, chunk);
+                    } else {
+                        ops.rightPushAll(key, chunk);
+                    }
+                }
+                return null;
+            }
+        });
+        Object size = sizes.isEmpty() ? null : sizes.get(sizes.size() - 1);
+        return size instanceof Long ? (Long) size : -1L;
+    }
+
+    /**
+     * 解析服务端返回的score，整数score（排行榜的常见情况）直接按位累加，不创建字符串
+     */
+    static double parseScore(byte[] raw) {
+        int length = raw.length;
+        if (length > 0 && length <= 16) {
+            boolean negative = raw[0] == '-';
+            int i = negative ? 1 : 0;
+            long value = 0L;
+            boolean digits = i < length;
+            for (; i < length && digits; i++) {
+                int digit = raw[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    digits = false;
+                } else {
+                    value = value * 10 + digit;
+                }
+            }
+            if (digits) {
+                return negative ? -value : value;
+            }
+        }
+        String text = new String(raw, StandardCharsets.US_ASCII);
+        if (text.endsWith("inf")) {
+            return text.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return Double.parseDouble(text);
+    }
+
+    private static ScanOptions scanOptions(String pattern, long count) {
+        return ScanOptions.scanOptions().match(Objects.isNull(pattern) ? "*" : pattern).count(Math.max(1L, count)).build();
+    }
+
+    /**
+     * 只遍历指定类型的key。每取出一批key，在一个管道中查询它们的TYPE后过滤，每批只多一次网络往返
+     *
+     * @param pattern 匹配模式
+     * @param count   每批返回数量的提示值(COUNT)
+     * @param type    key的类型，为null时不过滤
+     * @return
+     */
+    public Stream<String> scanKeys(String pattern, long count, DataType type) {
+        Stream<String> keys = scanKeys(pattern, count);
+        if (Objects.isNull(type)) {
+            return keys;
+        }
+        int batchSize = (int) Math.max(1, Math.min(count, KEY_CHUNK_SIZE));
+        return ScanStreams.filterInBatches(keys, batchSize, batch -> {
+            List<Object> types = pipelined(b -> batch.forEach(b::type));
+            List<Boolean> accepted = new ArrayList<>(types.size());
+            for (Object t : types) {
+                accepted.add(type == t);
+            }
+            return accepted;
+        });
     }
 
     /**
@@ -118,6 +665,7 @@ public class RedisUtils {
             return false;
         }
         Boolean move = redisTemplate.move(key, dbID);
+        invalidate(key);
         return Objects.nonNull(move);
     }
 
@@ -127,17 +675,227 @@ public class RedisUtils {
             return;
         }
         redisTemplate.delete(key);
+        invalidate(key);
+    }
+
+    /**
+     * 删除一个或多个key，按{@link #KEY_CHUNK_SIZE}分批发送多key的DEL命令
+     *
+     * @param keys
+     * @return 实际删除的key的数量
+     */
+    public long del(String... keys) {
+        if (Objects.isNull(keys)) {
+            return 0L;
+        }
+        return removeKeys(Arrays.asList(keys), false);
+    }
+
+    public long del(Collection<String> keys) {
+        return removeKeys(keys, false);
     }
 
     /**
-     * 删除一个或多个key
+     * 删除一个或多个key，和del不同的是value的内存在服务端后台线程中释放，
+     * 删除大key时不会阻塞Redis
      *
      * @param keys
+     * @return 实际删除的key的数量
      */
-    public void del(String... keys) {
-        if (Objects.nonNull(keys) && keys.length > 0) {
-            for (int i = 0; i < keys.length; i++) {
-                del(keys[i]);
+    public long unlink(String... keys) {
+        if (Objects.isNull(keys)) {
+            return 0L;
+        }
+        return removeKeys(Arrays.asList(keys), true);
+    }
+
+    public long unlink(Collection<String> keys) {
+        return removeKeys(keys, true);
+    }
+
+    private long removeKeys(Collection<String> keys, boolean unlink) {
+        if (Objects.isNull(keys) || keys.isEmpty()) {
+            return 0L;
+        }
+        long removed = 0L;
+        List<Object> chunk = new ArrayList<>(Math.min(keys.size(), KEY_CHUNK_SIZE));
+        Iterator<String> iterator = keys.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (Objects.nonNull(key) && !"".equals(key)) {
+                chunk.add(key);
+            }
+            if (chunk.size() == KEY_CHUNK_SIZE || (!iterator.hasNext() && !chunk.isEmpty())) {
+                Long count = unlink ? redisTemplate.unlink(chunk) : redisTemplate.delete(chunk);
+                chunk.forEach(k -> invalidate((String) k));
+                removed += Objects.isNull(count) ? 0L : count;
+                chunk.clear();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * getOrLoad的公共流程：同一个JVM内合并并发的加载；配置了租约时先抢租约，没抢到的节点返回旧值或等待其他节点写入
+     *
+     * @param flights   合并加载用的SingleFlight
+     * @param flightKey 合并加载的key
+     * @param reader    读取缓存
+     * @param loader    从数据源加载，返回null时不写入缓存
+     * @param writer    把加载结果写入缓存
+     * @param lease     为null时不使用跨节点租约
+     * @param leaseKey  租约的key
+     * @param stale     读取旧值，为null时没有旧值
+     * @return
+     */
+    private String loadThrough(SingleFlight<String> flights, String flightKey, Supplier<String> reader, Supplier<String> loader,
+                               Consumer<String> writer, CacheLease lease, String leaseKey, Supplier<String> stale) {
+        return flights.execute(flightKey, () -> {
+            if (Objects.isNull(lease)) {
+                return loadAndWrite(loader, writer);
+            }
+            String token = UUID.randomUUID().toString();
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token, lease.getLeaseMillis(), TimeUnit.MILLISECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                try {
+                    return loadAndWrite(loader, writer);
+                } finally {
+                    redisTemplate.execute(RELEASE_LEASE, Collections.singletonList(leaseKey), token);
+                }
+            }
+            if (Objects.nonNull(stale)) {
+                String value = stale.get();
+                if (Objects.nonNull(value)) {
+                    return value;
+                }
+            }
+            long deadline = System.currentTimeMillis() + lease.getWaitMillis();
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(Math.min(LEASE_POLL_MILLIS, Math.max(1L, deadline - System.currentTimeMillis())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                String value = reader.get();
+                if (Objects.nonNull(value)) {
+                    return value;
+                }
+            }
+            //持有租约的节点迟迟没有写入，自己加载
+            return loadAndWrite(loader, writer);
+        });
+    }
+
+    /**
+     * 执行loader并把结果连同本次计算耗时(delta)和逻辑过期时刻(expiry)写入hash。
+     * key本身在逻辑过期之后再过一段宽限期才过期，宽限期取delta的{@link #XFETCH_GRACE_DELTAS}倍，
+     * 至少{@link #XFETCH_MIN_GRACE_MILLIS}毫秒
+     *
+     * @return loader的结果
+     */
+    private String recompute(String key, long ttl, Supplier<String> loader) {
+        long start = System.currentTimeMillis();
+        String value = loader.get();
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Map<Object, Object> entry = new LinkedHashMap<>(4);
+        entry.put(XFETCH_VALUE, value);
+        entry.put(XFETCH_DELTA, String.valueOf(now - start));
+        entry.put(XFETCH_EXPIRY, String.valueOf(now + TimeUnit.SECONDS.toMillis(ttl)));
+        long physicalTtl = TimeUnit.SECONDS.toMillis(ttl) + Math.max(XFETCH_MIN_GRACE_MILLIS, (now - start) * XFETCH_GRACE_DELTAS);
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<Object, String> ops = (RedisOperations<Object, String>) operations;
+                ops.opsForHash().putAll(key, entry);
+                ops.expire(key, physicalTtl, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+        invalidate(key);
+        return value;
+    }
+
+    /**
+     * 在后台线程中重新计算，同一个key已经在刷新时不再提交
+     */
+    private void refreshAsync(String key, long ttl, Supplier<String> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refreshFlights.execute(key, () -> recompute(key, ttl, loader));
+                } catch (RuntimeException e) {
+                    //后台刷新失败时旧值仍然有效，到期前的读取会再次触发刷新
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private static long longValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Objects.isNull(value) ? 0L : Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static String loadAndWrite(Supplier<String> loader, Consumer<String> writer) {
+        String value = loader.get();
+        if (Objects.nonNull(value)) {
+            writer.accept(value);
+        }
+        return value;
+    }
+
+    /**
+     * 在同一个连接上以管道方式批量执行命令，回调中的命令只入队，回调结束后一次性发送，
+     * 把N次网络往返减少为一次。回调内通过batch.string/list/hash/set/zset入队命令，
+     * 返回的{@link RedisBatch.Response}在本方法返回后即可取值
+     *
+     * <pre>
+     * List&lt;Object&gt; results = redisUtils.pipelined(batch -&gt; {
+     *     batch.string.set("k", "v");
+     *     batch.hash.hGet("user:1", "name");
+     * });
+     * </pre>
+     *
+     * @param action
+     * @return 按入队顺序排列的所有命令结果（状态回复的命令除外）
+     */
+    public List<Object> pipelined(Consumer<RedisBatch> action) {
+        if (Objects.isNull(action)) {
+            return Collections.emptyList();
+        }
+        final RedisBatch[] batch = new RedisBatch[1];
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    batch[0] = new RedisBatch((RedisOperations<Object, String>) operations, RedisUtils.this::invalidate);
+                    action.accept(batch[0]);
+                    return null;
+                }
+            });
+            batch[0].complete(results);
+            return results;
+        } finally {
+            if (Objects.nonNull(batch[0])) {
+                batch[0].invalidateWritten();
             }
         }
     }
@@ -158,29 +916,73 @@ public class RedisUtils {
         public boolean set(String key, String value) {
             if (Objects.nonNull(key) && Objects.nonNull(value)) {
                 redisTemplate.opsForValue().set(key, value);
+                invalidate(key);
                 return true;
             }
             return false;
         }
 
+        /**
+         * @param command ex表示秒，px表示毫秒
+         * @return
+         */
         public boolean set(String key, String value, String command, long timout) {
-            if (Objects.nonNull(key) && Objects.nonNull(value) && Objects.nonNull(command) && timout > 0) {
-                if ("ex".equals(command.toLowerCase())) {
-                    redisTemplate.opsForValue().set(key, value, timout, TimeUnit.SECONDS);
-                } else if ("px".equals(command.toLowerCase())) {
-                    redisTemplate.opsForValue().set(key, value, timout, TimeUnit.MILLISECONDS);
-                }
+            TimeUnit unit = timeUnit(command);
+            if (Objects.nonNull(key) && Objects.nonNull(value) && Objects.nonNull(unit) && timout > 0) {
+                redisTemplate.opsForValue().set(key, value, timout, unit);
+                invalidate(key);
                 return true;
             }
             return false;
         }
 
         /**
+         * 按过期策略写入，一条 PSETEX key ttl value（spring-data-redis 2.1对带毫秒过期时间的set发送PSETEX）
+         *
          * @param key
          * @param value
-         * @param isKeyAbsent true表示nx   false表示xx
+         * @param policy
          * @return
          */
+        public boolean set(String key, String value, ExpiryPolicy policy) {
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(policy)) {
+                return false;
+            }
+            redisTemplate.opsForValue().set(key, value, policy.ttlMillis(key), TimeUnit.MILLISECONDS);
+            invalidate(key);
+            return true;
+        }
+
+        /**
+         * 按过期策略条件写入，一条 SET key value NX|XX PX ttl
+         *
+         * @param key
+         * @param value
+         * @param policy
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
+        public boolean set(String key, String value, ExpiryPolicy policy, boolean isKeyAbsent) {
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(policy)) {
+                return false;
+            }
+            long ttl = policy.ttlMillis(key);
+            Boolean res;
+            if (isKeyAbsent) {
+                res = redisTemplate.opsForValue().setIfAbsent(key, value, ttl, TimeUnit.MILLISECONDS);
+            } else {
+                res = redisTemplate.opsForValue().setIfPresent(key, value, ttl, TimeUnit.MILLISECONDS);
+            }
+            invalidate(key);
+            return Boolean.TRUE.equals(res);
+        }
+
+        /**
+         * @param key
+         * @param value
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
         public boolean set(@NotBlank String key, String value, boolean isKeyAbsent) {
             Boolean res = null;
             if (Objects.nonNull(key) && Objects.nonNull(value)) {
@@ -189,114 +991,446 @@ public class RedisUtils {
                 } else {
                     res = redisTemplate.opsForValue().setIfPresent(key, value);
                 }
+                invalidate(key);
             }
-            return Objects.nonNull(res);
+            return Boolean.TRUE.equals(res);
         }
 
-
+        /**
+         * 一条 SET key value NX|XX EX|PX timeout 命令完成条件写入和过期时间，不存在写入后还没有过期时间的间隙
+         *
+         * @param key
+         * @param value
+         * @param command     ex表示秒，px表示毫秒，为null时不设置过期时间
+         * @param timout
+         * @param isKeyAbsent true表示nx   false表示xx
+         * @return 是否真正写入
+         */
         public boolean set(String key, String value, String command, long timout, boolean isKeyAbsent) {
-            if (Objects.nonNull(command)) {
-                boolean res = this.set(key, value, isKeyAbsent);
-                if (res) {
-                    return this.set(key, key, command, timout);
-                }
-            } else if (Objects.nonNull(isKeyAbsent)) {
+            if (Objects.isNull(command)) {
                 return this.set(key, value, isKeyAbsent);
             }
-            return false;
+            TimeUnit unit = timeUnit(command);
+            if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(unit) || timout <= 0) {
+                return false;
+            }
+            Boolean res;
+            if (isKeyAbsent) {
+                res = redisTemplate.opsForValue().setIfAbsent(key, value, timout, unit);
+            } else {
+                res = redisTemplate.opsForValue().setIfPresent(key, value, timout, unit);
+            }
+            invalidate(key);
+            return Boolean.TRUE.equals(res);
+        }
+
+        private TimeUnit timeUnit(String command) {
+            if (Objects.isNull(command)) {
+                return null;
+            }
+            switch (command.toLowerCase()) {
+                case "ex":
+                    return TimeUnit.SECONDS;
+                case "px":
+                    return TimeUnit.MILLISECONDS;
+                default:
+                    return null;
+            }
         }
 
         /**
-         * 为多个键分别设置它们的值
+         * 为多个键分别设置它们的值。一条MSET，原子地全部写入；键很多时可以用{@link #mset(Map, int)}分批
          *
          * @param map
          */
         public void mset(Map<String, String> map) {
             if (Objects.nonNull(map) && map.size() > 0) {
-                redisTemplate.opsForValue().multiSet(map);
+                try {
+                    redisTemplate.opsForValue().multiSet(map);
+                } finally {
+                    map.keySet().forEach(RedisUtils.this::invalidate);
+                }
+            }
+        }
+
+        /**
+         * 为多个键分别设置它们的值。每批最多chunkSize个键一条MSET，多批时在同一个管道中发送，只需一次网络往返，
+         * 服务端也不会被一条巨大的命令阻塞；但整体不再是原子的，批与批之间可能穿插其他客户端的读写
+         *
+         * @param map
+         * @param chunkSize 每条MSET最多携带的键数量
+         */
+        public void mset(Map<String, String> map, int chunkSize) {
+            if (Objects.isNull(map) || map.isEmpty()) {
+                return;
+            }
+            List<Map<String, String>> chunks = chunks(map, chunkSize);
+            try {
+                if (chunks.size() == 1) {
+                    redisTemplate.opsForValue().multiSet(chunks.get(0));
+                    return;
+                }
+                redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        ValueOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForValue();
+                        chunks.forEach(ops::multiSet);
+                        return null;
+                    }
+                });
+            } finally {
+                map.keySet().forEach(RedisUtils.this::invalidate);
             }
         }
 
 
         /**
-         * 为多个键分别设置它们的值，仅当键不存在时
+         * 为多个键分别设置它们的值和过期时间，每个键一条 PSETEX key ttl value，全部在一个管道中发送。
+         * 代替 mset 之后再逐个 expire 的做法，同时避免这些键在同一时刻过期
+         *
+         * @param map
+         * @param policy
+         */
+        public void mset(Map<String, String> map, ExpiryPolicy policy) {
+            if (Objects.isNull(map) || map.isEmpty() || Objects.isNull(policy)) {
+                return;
+            }
+            pipelined(batch -> map.forEach((key, value) -> batch.string.set(key, value, policy)));
+        }
+
+
+        /**
+         * 为多个键分别设置它们的值，仅当键都不存在时。一条MSETNX，全部写入或全部不写入
          *
          * @param map
          */
         public void msetnx(Map<String, String> map) {
             if (Objects.nonNull(map)) {
                 redisTemplate.opsForValue().multiSetIfAbsent(map);
+                map.keySet().forEach(RedisUtils.this::invalidate);
+            }
+        }
+
+        /**
+         * 分批的MSETNX，每批最多chunkSize个键，多批时在同一个管道中发送。
+         * 只有同一批内是全部写入或全部不写入的，某一批中有已存在的键只会让这一批失败
+         *
+         * @param map
+         * @param chunkSize 每条MSETNX最多携带的键数量
+         * @return 实际写入的键的数量
+         */
+        public long msetnx(Map<String, String> map, int chunkSize) {
+            if (Objects.isNull(map) || map.isEmpty()) {
+                return 0L;
+            }
+            List<Map<String, String>> chunks = chunks(map, chunkSize);
+            try {
+                List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        ValueOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForValue();
+                        chunks.forEach(ops::multiSetIfAbsent);
+                        return null;
+                    }
+                });
+                long written = 0L;
+                for (int i = 0; i < results.size() && i < chunks.size(); i++) {
+                    if (Boolean.TRUE.equals(results.get(i))) {
+                        written += chunks.get(i).size();
+                    }
+                }
+                return written;
+            } finally {
+                map.keySet().forEach(RedisUtils.this::invalidate);
+            }
+        }
+
+        private List<Map<String, String>> chunks(Map<String, String> map, int chunkSize) {
+            int size = Math.max(1, chunkSize);
+            List<Map<String, String>> chunks = new ArrayList<>(map.size() / size + 1);
+            Map<String, String> chunk = null;
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                if (Objects.isNull(chunk) || chunk.size() == size) {
+                    chunk = new LinkedHashMap<>(Math.min(map.size(), size) * 4 / 3 + 1);
+                    chunks.add(chunk);
+                }
+                chunk.put(entry.getKey(), entry.getValue());
+            }
+            return chunks;
+        }
+
+
+        /**
+         * 获得指定key的value
+         *
+         * @param key
+         * @return
+         */
+        public String get(String key) {
+            if (Objects.nonNull(key)) {
+                if (Objects.isNull(nearCache)) {
+                    return read(key);
+                }
+                String cached = nearCache.get(key);
+                if (Objects.nonNull(cached)) {
+                    return cached;
+                }
+                long stamp = nearCache.stamp(key);
+                String value = read(key);
+                nearCache.put(key, value, stamp);
+                return value;
+            }
+            return null;
+        }
+
+        /**
+         * 读取key，未命中时调用loader加载并以ttl秒写入。同一个JVM内对同一个key的并发未命中只会加载一次
+         *
+         * @param key
+         * @param ttl    过期时间（秒），小于等于0时不过期
+         * @param loader 返回null时不写入缓存
+         * @return
+         */
+        public String getOrLoad(String key, long ttl, Supplier<String> loader) {
+            return getOrLoad(key, ttl, loader, null);
+        }
+
+        /**
+         * 同{@link #getOrLoad(String, long, Supplier)}，另外用跨节点租约保证同一时刻只有一个节点加载
+         *
+         * @param key
+         * @param ttl    过期时间（秒），小于等于0时不过期
+         * @param loader 返回null时不写入缓存
+         * @param lease  为null时不使用租约
+         * @return
+         */
+        public String getOrLoad(String key, long ttl, Supplier<String> loader, CacheLease lease) {
+            if (Objects.isNull(key) || Objects.isNull(loader)) {
+                return null;
+            }
+            return timed("string", "getOrLoad", () -> {
+                String value = get(key);
+                if (Objects.nonNull(value)) {
+                    return value;
+                }
+                boolean keepStale = Objects.nonNull(lease) && lease.getStaleMillis() > 0 && ttl > 0;
+                return loadThrough(stringFlights, key, () -> get(key), loader,
+                        loaded -> write(key, loaded, ttl, keepStale ? lease.getStaleMillis() : 0L),
+                        lease, key + LEASE_SUFFIX,
+                        keepStale ? () -> redisTemplate.opsForValue().get(key + STALE_SUFFIX) : null);
+            });
+        }
+
+        /**
+         * 提前刷新(XFetch)模式的读取，使用默认的系数{@link RedisUtils#XFETCH_BETA}
+         *
+         * @param key
+         * @param ttl    过期时间（秒）
+         * @param loader 返回null时不写入缓存
+         * @return
+         */
+        public String getOrRefresh(String key, long ttl, Supplier<String> loader) {
+            return getOrRefresh(key, ttl, loader, XFETCH_BETA);
+        }
+
+        /**
+         * 提前刷新(XFetch)模式的读取。值与上次计算耗时delta、过期时刻expiry一起存放在hash的value/delta/expiry域中，
+         * 每次读取以概率 now - delta * beta * ln(random) &gt;= expiry 触发后台重新计算，越接近过期、计算越慢，触发得越早。
+         * 触发刷新的读取仍立即返回当前值，过了expiry但还在宽限期内的读取一定触发刷新，也返回旧值；
+         * 只有key不存在时才同步加载（同一个JVM内合并并发的加载）。
+         * 用这种方式写入的key是hash类型，只能通过本方法读取
+         *
+         * @param key
+         * @param ttl    过期时间（秒）
+         * @param loader 返回null时不写入缓存
+         * @param beta   提前刷新系数，必须大于0
+         * @return
+         */
+        public String getOrRefresh(String key, long ttl, Supplier<String> loader, double beta) {
+            if (Objects.isNull(key) || Objects.isNull(loader) || ttl <= 0 || beta <= 0) {
+                return null;
+            }
+            return timed("string", "getOrRefresh", () -> {
+                List<Object> fields = redisTemplate.opsForHash().multiGet(key, XFETCH_FIELDS);
+                Object value = Objects.isNull(fields) ? null : fields.get(0);
+                if (Objects.isNull(value)) {
+                    return refreshFlights.execute(key, () -> recompute(key, ttl, loader));
+                }
+                long delta = longValue(fields.get(1));
+                long expiry = longValue(fields.get(2));
+                //1 - nextDouble()的取值范围是(0, 1]，避免ln(0)
+                double gap = -delta * beta * Math.log(1D - ThreadLocalRandom.current().nextDouble());
+                if (System.currentTimeMillis() + gap >= expiry) {
+                    refreshAsync(key, ttl, loader);
+                }
+                return (String) value;
+            });
+        }
+
+        /**
+         * 写入加载结果，需要保存旧值时在同一个管道中再写一份存活更久的副本
+         */
+        private void write(String key, String value, long ttl, long staleMillis) {
+            if (ttl <= 0) {
+                set(key, value);
+                return;
+            }
+            if (staleMillis <= 0) {
+                set(key, value, "ex", ttl);
+                return;
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForValue();
+                    ops.set(key, value, ttl, TimeUnit.SECONDS);
+                    ops.set(key + STALE_SUFFIX, value, TimeUnit.SECONDS.toMillis(ttl) + staleMillis, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+            invalidate(key);
+        }
+
+
+        /**
+         * 获取所有给定键的值。一条MGET，所有值来自同一时刻；键很多时可以用{@link #mget(Collection, int)}分批
+         *
+         * @param keys
+         * @return 与keys的迭代顺序一一对应，不存在的key对应null
+         */
+        public List<String> mget(Collection<String> keys) {
+            if (Objects.nonNull(keys) && keys.size() > 0) {
+                return redisTemplate.opsForValue().multiGet(new ArrayList<Object>(keys));
             }
+            return null;
         }
 
-
         /**
-         * 获得指定key的value
+         * 获取所有给定键的值。每批最多chunkSize个键一条MGET，多批时在同一个管道中发送，只需一次网络往返，
+         * 再按keys的顺序拼接各批的结果；不同批的值可能来自不同时刻
          *
-         * @param key
-         * @return
+         * @param keys
+         * @param chunkSize 每条MGET最多携带的键数量
+         * @return 与keys的迭代顺序一一对应，不存在的key对应null
          */
-        public String get(String key) {
-            if (Objects.nonNull(key)) {
-                return redisTemplate.opsForValue().get(key);
+        public List<String> mget(Collection<String> keys, int chunkSize) {
+            if (Objects.isNull(keys) || keys.isEmpty()) {
+                return null;
             }
-            return null;
+            List<List<Object>> chunks = keyChunks(keys, chunkSize);
+            if (chunks.size() == 1) {
+                return redisTemplate.opsForValue().multiGet(chunks.get(0));
+            }
+            List<Object> replies = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForValue();
+                    chunks.forEach(ops::multiGet);
+                    return null;
+                }
+            });
+            List<String> values = new ArrayList<>(keys.size());
+            for (Object reply : replies) {
+                for (Object value : (List<?>) reply) {
+                    values.add((String) value);
+                }
+            }
+            return values;
         }
 
-
         /**
-         * 获取所有给定键的值
+         * 逐批获取给定键的值并交给consumer处理，每批一条MGET，内存中最多只有一批结果，
+         * 适合键非常多、不需要一次拿到全部结果的场景
          *
          * @param keys
-         * @return
+         * @param chunkSize 每条MGET最多携带的键数量
+         * @param consumer  按keys的顺序依次接收(key, value)，不存在的key对应的value为null
          */
-        public List<String> mget(Collection<String> keys) {
-            if (Objects.nonNull(keys) && keys.size() > 0) {
-                return redisTemplate.opsForValue().multiGet(Collections.singleton(keys));
+        public void mget(Collection<String> keys, int chunkSize, BiConsumer<String, String> consumer) {
+            if (Objects.isNull(keys) || keys.isEmpty() || Objects.isNull(consumer)) {
+                return;
             }
-            return null;
+            int size = Math.max(1, chunkSize);
+            List<Object> chunk = new ArrayList<>(Math.min(keys.size(), size));
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == size || !iterator.hasNext()) {
+                    List<String> values = redisTemplate.opsForValue().multiGet(chunk);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        consumer.accept((String) chunk.get(i), Objects.isNull(values) ? null : values.get(i));
+                    }
+                    chunk.clear();
+                }
+            }
+        }
+
+        private List<List<Object>> keyChunks(Collection<String> keys, int chunkSize) {
+            int size = Math.max(1, chunkSize);
+            List<List<Object>> chunks = new ArrayList<>(keys.size() / size + 1);
+            List<Object> chunk = null;
+            for (String key : keys) {
+                if (Objects.isNull(chunk) || chunk.size() == size) {
+                    chunk = new ArrayList<>(Math.min(keys.size(), size));
+                    chunks.add(chunk);
+                }
+                chunk.add(key);
+            }
+            return chunks;
         }
 
 
         /**
-         * 截取指定key的value的部分
+         * 截取指定key的value的部分。getRange/strlen/append/setRange按UTF-8字节操作，
+         * 会跳过binary编码为字符串加的一个字节的头部；值被压缩或不是字符串时抛出异常。
+         * 使用json编码时值带有JSON的引号，下标和长度按存储的字节计算
          *
          * @param key
          * @param start 开始的下标
          * @param stop  结束的下标
          * @return
          */
+        @SuppressWarnings("unchecked")
         public String getRange(String key, long start, long stop) {
             if (Objects.nonNull(key)) {
-                return redisTemplate.opsForValue().get(key, start, stop);
+                byte[] range = redisTemplate.execute(TEXT_GETRANGE, RAW, (RedisSerializer<byte[]>) (RedisSerializer<?>) RAW,
+                        Collections.singletonList(key), index(start), index(stop));
+                return Objects.isNull(range) ? null : new String(range, StandardCharsets.UTF_8);
             }
             return null;
         }
 
         /**
-         * key-->value对value的长度
+         * key-->value对value的长度（UTF-8字节数），见{@link #getRange(String, long, long)}
          *
          * @param key
          * @return
          */
         public long strlen(String key) {
             if (Objects.nonNull(key)) {
-                Long size = redisTemplate.opsForValue().size(key);
+                Long size = redisTemplate.execute(TEXT_STRLEN, Collections.singletonList(key));
                 return Objects.isNull(size) ? 0L : size;
             }
             return 0L;
         }
 
         /**
-         * 字符串追加
+         * 字符串追加，key不存在时同set，见{@link #getRange(String, long, long)}
          *
          * @param key
          * @param s
          * @return 执行key追加后的
          */
+        @SuppressWarnings("unchecked")
         public long append(String key, String s) {
-            if (Objects.nonNull(key)) {
-                Integer length = redisTemplate.opsForValue().append(key, s);
+            if (Objects.nonNull(key) && Objects.nonNull(s)) {
+                Long length = redisTemplate.execute(TEXT_APPEND, RAW, (RedisSerializer<Long>) (RedisSerializer<?>) RAW,
+                        Collections.singletonList(key), s.getBytes(StandardCharsets.UTF_8), rawValue(s));
+                invalidate(key);
                 return Objects.isNull(length) ? strlen(key) : length;
             }
             return 0L;
@@ -311,6 +1445,7 @@ public class RedisUtils {
             if (Objects.nonNull(key)) {
                 try {
                     Long value = redisTemplate.opsForValue().increment(key, increment);
+                    invalidate(key);
                     return Objects.isNull(value) ? 0L : value;
                 } catch (NumberFormatException ex) {
                     throw new NumberFormatException("非数字不可加");
@@ -328,6 +1463,7 @@ public class RedisUtils {
             if (Objects.nonNull(key)) {
                 try {
                     Long value = redisTemplate.opsForValue().decrement(key, decrement);
+                    invalidate(key);
                     return Objects.isNull(value) ? 0L : value;
                 } catch (NumberFormatException ex) {
                     throw new NumberFormatException("非数字不可减");
@@ -337,15 +1473,18 @@ public class RedisUtils {
         }
 
         /**
-         * 在指定偏移处开始的键处覆盖字符串的一部分
+         * 在指定偏移处开始的键处覆盖字符串的一部分，偏移按UTF-8字节计算，见{@link #getRange(String, long, long)}
          *
          * @param key
          * @param offset
          * @param value
          */
+        @SuppressWarnings("unchecked")
         public void setRange(String key, long offset, String value) {
-            if (Objects.nonNull(key)) {
-                redisTemplate.opsForValue().set(key, value, offset);
+            if (Objects.nonNull(key) && Objects.nonNull(value)) {
+                redisTemplate.execute(TEXT_SETRANGE, RAW, (RedisSerializer<Long>) (RedisSerializer<?>) RAW,
+                        Collections.singletonList(key), index(offset), value.getBytes(StandardCharsets.UTF_8), rawValue(value));
+                invalidate(key);
             }
         }
 
@@ -356,10 +1495,6 @@ public class RedisUtils {
      */
     public class list {
 
-
-        @Autowired
-        private RedisTemplate<Object, String> redisTemplate;
-
         public long lPush(String key, String value) {
             if (Objects.nonNull(key)) {
                 Long leftPush = redisTemplate.opsForList().leftPush(key, value);
@@ -368,23 +1503,23 @@ public class RedisUtils {
             return -1L;
         }
 
+        /**
+         * 一次LPUSH把多个value依次入栈，元素过多时按{@link RedisUtils#VALUE_CHUNK_SIZE}分批在一个管道中发送
+         *
+         * @param key
+         * @param value
+         * @return 入栈后list的长度
+         */
         public long lPush(String key, String... value) {
             if (Objects.nonNull(key) && Objects.nonNull(value)) {
-                for (int i = 0; i < value.length; i++) {
-                    long l = lPush(key, value[i]);
-                    if (-1L == l) {
-                        return -1L;
-                    }
-                }
-                return value.length;
+                return RedisUtils.pushAll(redisTemplate, key, value, true);
             }
             return -1L;
         }
 
         public long lPush(String key, Collection<String> value) {
-            if (Objects.nonNull(key)) {
-                Long pushAll = redisTemplate.opsForList().leftPushAll(key, value);
-                return Objects.isNull(pushAll) ? 0L : pushAll;
+            if (Objects.nonNull(key) && Objects.nonNull(value)) {
+                return RedisUtils.pushAll(redisTemplate, key, value.toArray(new String[0]), true);
             }
             return -1L;
         }
@@ -419,15 +1554,16 @@ public class RedisUtils {
         }
 
 
+        /**
+         * 一次RPUSH把多个value依次追加到list尾部，元素过多时按{@link RedisUtils#VALUE_CHUNK_SIZE}分批在一个管道中发送
+         *
+         * @param key
+         * @param value
+         * @return 追加后list的长度
+         */
         public long rPush(String key, String... value) {
             if (Objects.nonNull(key) && Objects.nonNull(value)) {
-                for (int i = 0; i < value.length; i++) {
-                    long l = rPush(key, value[i]);
-                    if (-1L == l) {
-                        return -1L;
-                    }
-                }
-                return value.length;
+                return RedisUtils.pushAll(redisTemplate, key, value, false);
             }
             return -1L;
         }
@@ -524,14 +1660,14 @@ public class RedisUtils {
         }
 
         /**
-         * 获取list下标为index位置的元素
+         * 获取list下标为index位置的元素，只发送一条LINDEX
          *
          * @param key
-         * @param index
-         * @return
+         * @param index 负数表示从尾部倒数
+         * @return 下标越界或key不存在时为null
          */
         public String lIndex(String key, long index) {
-            if (Objects.isNull(key) || Math.abs(index) > llen(key)) {
+            if (Objects.isNull(key)) {
                 return null;
             }
             return redisTemplate.opsForList().index(key, index);
@@ -561,18 +1697,73 @@ public class RedisUtils {
         }
 
         /**
-         * 将列表 key 下标为 index 的元素的值设值为 value 。
+         * 将列表 key 下标为 index 的元素的值设值为 value ，只发送一条LSET。
+         * 下标越界或key不存在时由服务端返回错误，以 {@link org.springframework.dao.DataAccessException} 抛出
          *
          * @param key
          * @param index
          * @param value
          */
         public void lSet(String key, long index, String value) {
-            if (Objects.isNull(key) || (index > 0 && index >= llen(key)) || (index < 0 && Math.abs(index) >= llen(key) + 1)) {
+            if (Objects.isNull(key)) {
                 return;
             }
             redisTemplate.opsForList().set(key, index, value);
         }
+
+        /**
+         * 在一个管道中为每个下标发送一条LINDEX，只需一次网络往返
+         *
+         * @param key
+         * @param indexes
+         * @return 与indexes一一对应，下标越界的位置为null
+         */
+        public List<String> lIndexMany(String key, long[] indexes) {
+            if (Objects.isNull(key) || Objects.isNull(indexes)) {
+                return null;
+            }
+            if (indexes.length == 0) {
+                return new ArrayList<>();
+            }
+            List<Object> values = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ListOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForList();
+                    for (long index : indexes) {
+                        ops.index(key, index);
+                    }
+                    return null;
+                }
+            });
+            List<String> result = new ArrayList<>(values.size());
+            for (Object value : values) {
+                result.add((String) value);
+            }
+            return result;
+        }
+
+        /**
+         * 在一个管道中为每个下标发送一条LSET，只需一次网络往返。
+         * 各条命令互相独立，某个下标越界时其余的仍会生效，管道结束后以 {@link org.springframework.data.redis.connection.RedisPipelineException} 抛出
+         *
+         * @param key
+         * @param values 下标 -> 新的值
+         */
+        public void lSetMany(String key, Map<Long, String> values) {
+            if (Objects.isNull(key) || Objects.isNull(values) || values.isEmpty()) {
+                return;
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ListOperations<Object, String> ops = ((RedisOperations<Object, String>) operations).opsForList();
+                    values.forEach((index, value) -> ops.set(key, index, value));
+                    return null;
+                }
+            });
+        }
     }
 
     /**
@@ -592,6 +1783,7 @@ public class RedisUtils {
         public boolean hSet(String key, String filed, String value) {
             if (Objects.nonNull(key) && Objects.nonNull(filed) && Objects.nonNull(value)) {
                 redisTemplate.opsForHash().put(key, filed, value);
+                invalidate(key);
                 return true;
             }
             return false;
@@ -600,6 +1792,7 @@ public class RedisUtils {
         public boolean hMSet(String key, Map<String, Object> map) {
             if (Objects.nonNull(key) && Objects.nonNull(map)) {
                 redisTemplate.opsForHash().putAll(key, map);
+                invalidate(key);
                 return true;
             }
             return false;
@@ -615,6 +1808,7 @@ public class RedisUtils {
         public boolean hSetNX(String key, String filed, String value) {
             if (Objects.nonNull(key) && Objects.nonNull(filed) && Objects.nonNull(value)) {
                 Boolean re = redisTemplate.opsForHash().putIfAbsent(key, filed, value);
+                invalidate(key);
                 return Objects.nonNull(re);
             }
             return false;
@@ -629,11 +1823,58 @@ public class RedisUtils {
          */
         public String hGet(String key, String filed) {
             if (Objects.nonNull(key) && Objects.nonNull(filed)) {
-                return (String) redisTemplate.opsForHash().get(key, filed);
+                if (Objects.isNull(nearCache)) {
+                    return read(key, filed);
+                }
+                String cached = nearCache.get(key, filed);
+                if (Objects.nonNull(cached)) {
+                    return cached;
+                }
+                long stamp = nearCache.stamp(key);
+                String value = read(key, filed);
+                nearCache.put(key, filed, value, stamp);
+                return value;
             }
             return null;
         }
 
+        /**
+         * 读取hash的域，未命中时调用loader加载并写入。同一个JVM内对同一个域的并发未命中只会加载一次。
+         * hash的域没有单独的过期时间，整个hash的过期请用expire设置
+         *
+         * @param key
+         * @param filed
+         * @param loader 返回null时不写入
+         * @return
+         */
+        public String hGetOrLoad(String key, String filed, Supplier<String> loader) {
+            return hGetOrLoad(key, filed, loader, null);
+        }
+
+        /**
+         * 同{@link #hGetOrLoad(String, String, Supplier)}，另外用跨节点租约保证同一时刻只有一个节点加载该域，
+         * 租约的旧值选项对hash无效
+         *
+         * @param key
+         * @param filed
+         * @param loader 返回null时不写入
+         * @param lease  为null时不使用租约
+         * @return
+         */
+        public String hGetOrLoad(String key, String filed, Supplier<String> loader, CacheLease lease) {
+            if (Objects.isNull(key) || Objects.isNull(filed) || Objects.isNull(loader)) {
+                return null;
+            }
+            return timed("hash", "hGetOrLoad", () -> {
+                String value = hGet(key, filed);
+                if (Objects.nonNull(value)) {
+                    return value;
+                }
+                return loadThrough(hashFlights, key + '\u0000' + filed, () -> hGet(key, filed), loader,
+                        loaded -> hSet(key, filed, loaded), lease, key + ":" + filed + LEASE_SUFFIX, null);
+            });
+        }
+
         /**
          * 获得指定key中的所有filed和value
          *
@@ -718,6 +1959,7 @@ public class RedisUtils {
         public long hIncrBy(String key, String filed, long increment) {
             if (Objects.nonNull(key)) {
                 Long value = redisTemplate.opsForHash().increment(key, filed, increment);
+                invalidate(key);
                 return Objects.nonNull(value) ? value : -1L;
             }
             return -1L;
@@ -734,6 +1976,7 @@ public class RedisUtils {
         public double hIncrByFloat(String key, String filed, double increment) {
             if (Objects.nonNull(key) && Objects.nonNull(filed)) {
                 Double value = redisTemplate.opsForHash().increment(key, filed, increment);
+                invalidate(key);
                 return Objects.nonNull(value) ? value : -1L;
             }
             return -1;
@@ -765,6 +2008,37 @@ public class RedisUtils {
             return null;
         }
 
+        /**
+         * 使用HSCAN游标惰性遍历hash表中匹配matchPattern的域和值，每次只反序列化一批，
+         * 适合hGetAll无法一次装下的大hash。提前结束遍历时必须关闭返回的Stream以放弃游标，推荐使用try-with-resources
+         *
+         * @param key
+         * @param matchPattern 域的匹配模式，为null时匹配全部
+         * @param batchSize    每批返回数量的提示值(COUNT)
+         * @return
+         */
+        public Stream<Map.Entry<Object, Object>> hScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Stream.empty();
+            }
+            Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(key, scanOptions(matchPattern, batchSize));
+            return ScanStreams.of(cursor, entry -> entry);
+        }
+
+        /**
+         * hKeys的游标版本，只保留域
+         */
+        public Stream<Object> hScanKeys(String key, String matchPattern, long batchSize) {
+            return hScan(key, matchPattern, batchSize).map(Map.Entry::getKey);
+        }
+
+        /**
+         * hValues的游标版本，只保留值
+         */
+        public Stream<Object> hScanValues(String key, String matchPattern, long batchSize) {
+            return hScan(key, matchPattern, batchSize).map(Map.Entry::getValue);
+        }
+
     }
 
     /**
@@ -846,115 +2120,306 @@ public class RedisUtils {
         /**
          * 随机返回一个Set中的元素
          *
-         * @param key
+         * @param key
+         * @return
+         */
+        public String sRandMember(String key) {
+            if (Objects.nonNull(key)) {
+                return redisTemplate.opsForSet().randomMember(key);
+            }
+            return null;
+        }
+
+        /***
+         * 随机返回count个Set中的元素
+         * @param key
+         * @param count
+         * @return
+         */
+        public List<String> sRandMember(String key, long count) {
+            if (Objects.nonNull(key) && count > 0) {
+                return redisTemplate.opsForSet().randomMembers(key, count);
+            }
+            return null;
+        }
+
+        /**
+         * 使用SSCAN游标惰性遍历集合中匹配matchPattern的元素，内存中最多只有一批元素，
+         * 可替代大集合上的sMembers。提前结束遍历时必须关闭返回的Stream，推荐使用try-with-resources
+         *
+         * @param key
+         * @param matchPattern 元素的匹配模式，为null时匹配全部
+         * @param batchSize    每批返回数量的提示值(COUNT)
+         * @return
+         */
+        public Stream<String> sScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Stream.empty();
+            }
+            Cursor<String> cursor = redisTemplate.opsForSet().scan(key, scanOptions(matchPattern, batchSize));
+            return ScanStreams.of(cursor, member -> member);
+        }
+
+        /**
+         * 随机删除Set集合中的count个元素
+         *
+         * @param key
+         * @param count
+         */
+        public void sPop(String key, long count) {
+            if (Objects.nonNull(key) && count > 0) {
+                redisTemplate.opsForSet().pop(key, count);
+            }
+        }
+    }
+
+    /**
+     * 操作zset
+     */
+    public class zset {
+
+        /**
+         * 把srcSet集合中的member元素移动到destinationSet集合中
+         *
+         * @param member
+         * @param srcSet
+         * @param destinationSet
+         * @return
+         */
+        public boolean sMove(String srcSet, String destinationSet, String member) {
+            if (Objects.nonNull(srcSet) && Objects.nonNull(destinationSet)) {
+                Boolean move = redisTemplate.opsForSet().move(srcSet, destinationSet, member);
+                return Objects.nonNull(move);
+            }
+            return false;
+        }
+
+        public Set<String> sDiff(String k1, String k2) {
+            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
+                return redisTemplate.opsForSet().difference(k1, k2);
+            }
+            return null;
+        }
+
+        public Set<String> sDiff(String... keys) {
+            if (Objects.nonNull(keys) && keys.length > 0) {
+                return redisTemplate.opsForSet().difference(keys[0], others(keys));
+            }
+            return null;
+        }
+
+        public Set<String> sInter(String k1, String k2) {
+            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
+                return redisTemplate.opsForSet().intersect(k1, k2);
+            }
+            return null;
+        }
+
+        public Set<String> sInter(String... keys) {
+            if (Objects.nonNull(keys) && keys.length > 0) {
+                return redisTemplate.opsForSet().intersect(keys[0], others(keys));
+            }
+            return null;
+        }
+
+        public Set<String> sUnion(String k1, String k2) {
+            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
+                return redisTemplate.opsForSet().union(k1, k2);
+            }
+            return null;
+        }
+
+        public Set<String> sUnion(String... keys) {
+            if (Objects.nonNull(keys) && keys.length > 0) {
+                return redisTemplate.opsForSet().union(keys[0], others(keys));
+            }
+            return null;
+        }
+
+        /**
+         * 把多个集合的差集保存到destKey中，结果不经过客户端。destKey已存在时被覆盖
+         *
+         * @param destKey
+         * @param keys    第一个集合减去其余集合
+         * @return 结果集合的元素数量
+         */
+        public long sDiffStore(String destKey, String... keys) {
+            if (Objects.nonNull(destKey) && Objects.nonNull(keys) && keys.length > 0) {
+                Long size = redisTemplate.opsForSet().differenceAndStore(keys[0], others(keys), destKey);
+                return Objects.nonNull(size) ? size : 0L;
+            }
+            return 0L;
+        }
+
+        /**
+         * 把多个集合的交集保存到destKey中，结果不经过客户端。destKey已存在时被覆盖
+         *
+         * @param destKey
+         * @param keys
+         * @return 结果集合的元素数量
+         */
+        public long sInterStore(String destKey, String... keys) {
+            if (Objects.nonNull(destKey) && Objects.nonNull(keys) && keys.length > 0) {
+                Long size = redisTemplate.opsForSet().intersectAndStore(keys[0], others(keys), destKey);
+                return Objects.nonNull(size) ? size : 0L;
+            }
+            return 0L;
+        }
+
+        /**
+         * 把多个集合的并集保存到destKey中，结果不经过客户端。destKey已存在时被覆盖
+         *
+         * @param destKey
+         * @param keys
+         * @return 结果集合的元素数量
+         */
+        public long sUnionStore(String destKey, String... keys) {
+            if (Objects.nonNull(destKey) && Objects.nonNull(keys) && keys.length > 0) {
+                Long size = redisTemplate.opsForSet().unionAndStore(keys[0], others(keys), destKey);
+                return Objects.nonNull(size) ? size : 0L;
+            }
+            return 0L;
+        }
+
+        /**
+         * 只返回差集的元素数量：在脚本中写入临时key、取数量后立即删除，成员不经过网络。
+         * 差集仍会在服务端完整地生成一次，结果很大时服务端的耗时和临时内存与SDIFFSTORE相同
+         *
+         * @param keys
+         * @return
+         */
+        public long sDiffCard(String... keys) {
+            return storeCard(SDIFF_CARD, keys);
+        }
+
+        /**
+         * 只返回交集的元素数量，见{@link #sDiffCard(String...)}
+         *
+         * @param keys
+         * @return
+         */
+        public long sInterCard(String... keys) {
+            return storeCard(SINTER_CARD, keys);
+        }
+
+        /**
+         * 只返回并集的元素数量，见{@link #sDiffCard(String...)}
+         *
+         * @param keys
          * @return
          */
-        public String sRandMember(String key) {
-            if (Objects.nonNull(key)) {
-                return redisTemplate.opsForSet().randomMember(key);
-            }
-            return null;
+        public long sUnionCard(String... keys) {
+            return storeCard(SUNION_CARD, keys);
         }
 
-        /***
-         * 随机返回count个Set中的元素
-         * @param key
-         * @param count
-         * @return
+        /**
+         * 把多个有序集合的交集保存到destKey中，score按SUM累加
+         *
+         * @param destKey
+         * @param keys
+         * @return 结果有序集合的元素数量
          */
-        public List<String> sRandMember(String key, long count) {
-            if (Objects.nonNull(key) && count > 0) {
-                return redisTemplate.opsForSet().randomMembers(key, count);
-            }
-            return null;
+        public long zInterStore(String destKey, String... keys) {
+            return zInterStore(destKey, Objects.isNull(keys) ? null : Arrays.asList(keys), null, RedisZSetCommands.Aggregate.SUM);
         }
 
         /**
-         * 随机删除Set集合中的count个元素
+         * 把多个有序集合的交集保存到destKey中，结果不经过客户端。destKey已存在时被覆盖
          *
-         * @param key
-         * @param count
+         * @param destKey
+         * @param keys
+         * @param weights   与keys一一对应的权重，每个集合的score先乘以权重再聚合，为null时全部为1；数量不一致时由服务端报错
+         * @param aggregate SUM、MIN或MAX
+         * @return 结果有序集合的元素数量
          */
-        public void sPop(String key, long count) {
-            if (Objects.nonNull(key) && count > 0) {
-                redisTemplate.opsForSet().pop(key, count);
+        public long zInterStore(String destKey, Collection<String> keys, double[] weights, RedisZSetCommands.Aggregate aggregate) {
+            if (Objects.nonNull(destKey) && Objects.nonNull(keys) && !keys.isEmpty()) {
+                List<String> list = new ArrayList<>(keys);
+                Long size = redisTemplate.opsForZSet().intersectAndStore(list.get(0), new ArrayList<Object>(list.subList(1, list.size())), destKey,
+                        Objects.isNull(aggregate) ? RedisZSetCommands.Aggregate.SUM : aggregate, weights(weights, list.size()));
+                return Objects.nonNull(size) ? size : 0L;
             }
+            return 0L;
         }
-    }
-
-    /**
-     * 操作zset
-     */
-    public class zset {
 
         /**
-         * 把srcSet集合中的member元素移动到destinationSet集合中
+         * 把多个有序集合的并集保存到destKey中，score按SUM累加
          *
-         * @param member
-         * @param srcSet
-         * @param destinationSet
-         * @return
+         * @param destKey
+         * @param keys
+         * @return 结果有序集合的元素数量
          */
-        public boolean sMove(String srcSet, String destinationSet, String member) {
-            if (Objects.nonNull(srcSet) && Objects.nonNull(destinationSet)) {
-                Boolean move = redisTemplate.opsForSet().move(srcSet, destinationSet, member);
-                return Objects.nonNull(move);
-            }
-            return false;
+        public long zUnionStore(String destKey, String... keys) {
+            return zUnionStore(destKey, Objects.isNull(keys) ? null : Arrays.asList(keys), null, RedisZSetCommands.Aggregate.SUM);
         }
 
-        public Set<String> sDiff(String k1, String k2) {
-            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
-                return redisTemplate.opsForSet().difference(k1, k2);
+        /**
+         * 把多个有序集合的并集保存到destKey中，结果不经过客户端。destKey已存在时被覆盖
+         *
+         * @param destKey
+         * @param keys
+         * @param weights   与keys一一对应的权重，为null时全部为1；数量不一致时由服务端报错
+         * @param aggregate SUM、MIN或MAX
+         * @return 结果有序集合的元素数量
+         */
+        public long zUnionStore(String destKey, Collection<String> keys, double[] weights, RedisZSetCommands.Aggregate aggregate) {
+            if (Objects.nonNull(destKey) && Objects.nonNull(keys) && !keys.isEmpty()) {
+                List<String> list = new ArrayList<>(keys);
+                Long size = redisTemplate.opsForZSet().unionAndStore(list.get(0), new ArrayList<Object>(list.subList(1, list.size())), destKey,
+                        Objects.isNull(aggregate) ? RedisZSetCommands.Aggregate.SUM : aggregate, weights(weights, list.size()));
+                return Objects.nonNull(size) ? size : 0L;
             }
-            return null;
+            return 0L;
         }
 
-        public Set<String> sDiff(String... keys) {
-            if (Objects.nonNull(keys) && keys.length > 0) {
-                ArrayList<String> list = new ArrayList<>(Arrays.asList(keys));
-                list.remove(0);
-                return redisTemplate.opsForSet().difference(keys[0], list);
-            }
-            return null;
+        /**
+         * 只返回有序集合交集的元素数量，权重和聚合方式不影响数量，见{@link #sDiffCard(String...)}
+         *
+         * @param keys
+         * @return
+         */
+        public long zInterCard(String... keys) {
+            return storeCard(ZINTER_CARD, keys);
         }
 
-        public Set<String> sInter(String k1, String k2) {
-            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
-                return redisTemplate.opsForSet().intersect(k1, k2);
-            }
-            return null;
+        /**
+         * 只返回有序集合并集的元素数量，见{@link #sDiffCard(String...)}
+         *
+         * @param keys
+         * @return
+         */
+        public long zUnionCard(String... keys) {
+            return storeCard(ZUNION_CARD, keys);
         }
 
-        public Set<String> sInter(String... keys) {
-            if (Objects.nonNull(keys) && keys.length > 0) {
-                ArrayList<String> list = new ArrayList<>(Arrays.asList(keys));
-                list.remove(0);
-                redisTemplate.opsForSet().intersect(keys[0], list);
-            }
-            return null;
+        /**
+         * 除第一个key以外的其余key。必须是Collection<Object>，否则会匹配到(K key, K otherKey)重载，把整个列表当作一个key
+         */
+        private List<Object> others(String[] keys) {
+            return new ArrayList<>(Arrays.asList(keys).subList(1, keys.length));
         }
 
-        public Set<String> sUnion(String k1, String k2) {
-            if (Objects.nonNull(k1) && Objects.nonNull(k2)) {
-                return redisTemplate.opsForSet().union(k1, k2);
-            }
-            return null;
+        private RedisZSetCommands.Weights weights(double[] weights, int count) {
+            return Objects.isNull(weights) ? RedisZSetCommands.Weights.fromSetCount(count) : RedisZSetCommands.Weights.of(weights);
         }
 
-        public Set<String> sUnion(String... keys) {
-            if (Objects.nonNull(keys) && keys.length > 0) {
-                ArrayList<String> list = new ArrayList<>(Arrays.asList(keys));
-                list.remove(0);
-                redisTemplate.opsForSet().union(keys[0], list);
+        private long storeCard(RedisScript<Long> script, String... keys) {
+            if (Objects.isNull(keys) || keys.length == 0) {
+                return 0L;
             }
-            return null;
+            List<Object> scriptKeys = new ArrayList<>(keys.length + 1);
+            scriptKeys.add(CARD_KEY_PREFIX + UUID.randomUUID());
+            scriptKeys.addAll(Arrays.asList(keys));
+            Long size = redisTemplate.execute(script, scriptKeys);
+            return Objects.nonNull(size) ? size : 0L;
         }
 
         /**
          * 将一个或多个 member 元素及其 score值加入到有序集key 当中。
          * 如果某个 member 已经是有序集的成员，那么更新这个member的 score值，
          * 并通过重新插入这个 member元素，来保证该member在正确的位置上。
+         * 一条ZADD，原子地全部写入；成员很多时可以用{@link #zAdd(String, String[], double[], int, ZAddFlag...)}分批。
+         * member或score为null的项被跳过
          *
          * @param key
          * @param map
@@ -964,16 +2429,125 @@ public class RedisUtils {
             if (Objects.nonNull(key) && Objects.nonNull(map) && map.size() > 0) {
                 Set<ZSetOperations.TypedTuple<String>> set = new HashSet<>();
                 map.forEach((k, v) -> {
-                    //TypeTuple的默认实现类：就是用来捆绑score和member的
-                    DefaultTypedTuple<String> defaultTypedTuple = new DefaultTypedTuple<>(k, v);
-                    set.add(defaultTypedTuple);
+                    //跳过member或score为null的项
+                    if (Objects.nonNull(k) && Objects.nonNull(v)) {
+                        //TypeTuple的默认实现类：就是用来捆绑score和member的
+                        DefaultTypedTuple<String> defaultTypedTuple = new DefaultTypedTuple<>(k, v);
+                        set.add(defaultTypedTuple);
+                    }
                 });
+                if (set.isEmpty()) {
+                    return 0L;
+                }
                 Long add = redisTemplate.opsForZSet().add(key, set);
                 return Objects.nonNull(add) ? add : 0L;
             }
             return 0L;
         }
 
+        /**
+         * 按{@link RedisUtils#VALUE_CHUNK_SIZE}分批写入，见{@link #zAdd(String, String[], double[], int, ZAddFlag...)}
+         *
+         * @param key
+         * @param members
+         * @param scores
+         * @param flags
+         * @return
+         */
+        public long zAdd(String key, String[] members, double[] scores, ZAddFlag... flags) {
+            return zAdd(key, members, scores, RedisUtils.VALUE_CHUNK_SIZE, flags);
+        }
+
+        /**
+         * 从两个等长的数组批量写入成员和score，不创建TypedTuple。
+         * 每chunkSize个成员一条ZADD，各批按顺序在管道中发送，批与批之间可能穿插其他客户端的写入
+         *
+         * @param key
+         * @param members
+         * @param scores    与members一一对应
+         * @param chunkSize 每条ZADD携带的成员数量
+         * @param flags     NX/XX/GT/LT/CH
+         * @return 新添加的成员数量，带CH时为score发生变化的成员数量；数组长度不一致时返回-1
+         */
+        public long zAdd(String key, String[] members, double[] scores, int chunkSize, ZAddFlag... flags) {
+            if (Objects.isNull(key) || Objects.isNull(members) || Objects.isNull(scores) || members.length != scores.length || chunkSize <= 0) {
+                return -1L;
+            }
+            if (members.length == 0) {
+                return 0L;
+            }
+            return zAddAll(key, chunkSize, flags, sink -> {
+                for (int i = 0; i < members.length; i++) {
+                    sink.accept(members[i], scores[i]);
+                }
+            });
+        }
+
+        /**
+         * 按{@link RedisUtils#VALUE_CHUNK_SIZE}分批写入，见{@link #zAdd(String, Iterator, int, ZAddFlag...)}
+         *
+         * @param key
+         * @param entries
+         * @param flags
+         * @return
+         */
+        public long zAdd(String key, Iterator<ScoredMember> entries, ZAddFlag... flags) {
+            return zAdd(key, entries, RedisUtils.VALUE_CHUNK_SIZE, flags);
+        }
+
+        /**
+         * 边遍历边写入，内存中最多只有一批成员，适合从文件或数据库游标导入大量成员
+         *
+         * @param key
+         * @param entries
+         * @param chunkSize 每条ZADD携带的成员数量
+         * @param flags     NX/XX/GT/LT/CH
+         * @return 新添加的成员数量，带CH时为score发生变化的成员数量
+         */
+        public long zAdd(String key, Iterator<ScoredMember> entries, int chunkSize, ZAddFlag... flags) {
+            if (Objects.isNull(key) || Objects.isNull(entries) || chunkSize <= 0) {
+                return -1L;
+            }
+            if (!entries.hasNext()) {
+                return 0L;
+            }
+            return zAddAll(key, chunkSize, flags, sink -> {
+                while (entries.hasNext()) {
+                    ScoredMember entry = entries.next();
+                    sink.accept(entry.getMember(), entry.getScore());
+                }
+            });
+        }
+
+        /**
+         * producer把每个成员及score交给sink，sink凑满chunkSize个成员后发出一条ZADD；
+         * 每{@link #ZADD_PIPELINE_CHUNKS}条ZADD结束一次管道并读取回复，限制未确认的命令数量
+         */
+        private long zAddAll(String key, int chunkSize, ZAddFlag[] flags, Consumer<ObjDoubleConsumer<String>> producer) {
+            byte[] rawKey = rawKey(key);
+            byte[][] options = zAddOptions(flags);
+            @SuppressWarnings("unchecked")
+            RedisSerializer<Object> serializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            Long total = redisTemplate.execute((RedisCallback<Long>) connection -> {
+                ZAddWriter writer = new ZAddWriter(connection, rawKey, options, chunkSize, serializer);
+                connection.openPipeline();
+                try {
+                    producer.accept(writer);
+                    writer.flush();
+                } catch (RuntimeException | Error e) {
+                    //producer或发送失败时仍要结束管道，结束管道时的异常附在原异常上，不能掩盖它
+                    try {
+                        writer.closePipeline();
+                    } catch (RuntimeException closeFailure) {
+                        e.addSuppressed(closeFailure);
+                    }
+                    throw e;
+                }
+                writer.closePipeline();
+                return writer.total;
+            });
+            return Objects.nonNull(total) ? total : 0L;
+        }
 
         public Set<?> zRange(String key, long start, long end, boolean withscore) {
             if (Objects.nonNull(key) && !"".equals(key)) {
@@ -988,7 +2562,7 @@ public class RedisUtils {
         public Set<?> zRevRange(String key, long start, long end, boolean withscore) {
             if (Objects.nonNull(key) && !"".equals(key)) {
                 if (withscore) {
-                    return redisTemplate.opsForZSet().reverseRangeByScore(key, start, end);
+                    return redisTemplate.opsForZSet().reverseRangeWithScores(key, start, end);
                 }
                 return redisTemplate.opsForZSet().reverseRange(key, start, end);
             }
@@ -1016,6 +2590,187 @@ public class RedisUtils {
         }
 
 
+        /**
+         * 同zRange(key, start, end, true)，结果保存在成员数组和score数组中，不创建TypedTuple和Double
+         *
+         * @param key
+         * @param start
+         * @param end
+         * @return
+         */
+        public ScoredRange zRangeWithScores(String key, long start, long end) {
+            return scoredRange("ZRANGE", key, start >= 0 ? start : -1L, index(start), index(end), WITHSCORES);
+        }
+
+        /**
+         * 按score从高到低，见{@link #zRangeWithScores(String, long, long)}
+         *
+         * @param key
+         * @param start
+         * @param end
+         * @return
+         */
+        public ScoredRange zRevRangeWithScores(String key, long start, long end) {
+            return scoredRange("ZREVRANGE", key, start >= 0 ? start : -1L, index(start), index(end), WITHSCORES);
+        }
+
+        /**
+         * 同zRangeByScore(key, min, max, true)，见{@link #zRangeWithScores(String, long, long)}
+         *
+         * @param key
+         * @param min
+         * @param max
+         * @return
+         */
+        public ScoredRange zRangeByScoreWithScores(String key, double min, double max) {
+            return scoredRange("ZRANGEBYSCORE", key, -1L, score(min), score(max), WITHSCORES);
+        }
+
+        /**
+         * 同zRangeByScore(key, min, max, true, true, offset, count)，见{@link #zRangeWithScores(String, long, long)}
+         *
+         * @param key
+         * @param min
+         * @param max
+         * @param offset
+         * @param count
+         * @return
+         */
+        public ScoredRange zRangeByScoreWithScores(String key, double min, double max, long offset, long count) {
+            return scoredRange("ZRANGEBYSCORE", key, -1L, score(min), score(max), WITHSCORES, LIMIT, index(offset), index(count));
+        }
+
+        /**
+         * 按顺序把范围内的每个成员及score交给consumer，不创建任何中间集合
+         *
+         * @param key
+         * @param start
+         * @param end
+         * @param consumer
+         * @return 成员数量
+         */
+        public long zRange(String key, long start, long end, ObjDoubleConsumer<String> consumer) {
+            return scoredRange("ZRANGE", key, consumer, index(start), index(end), WITHSCORES);
+        }
+
+        /**
+         * 按score从高到低，见{@link #zRange(String, long, long, ObjDoubleConsumer)}
+         *
+         * @param key
+         * @param start
+         * @param end
+         * @param consumer
+         * @return 成员数量
+         */
+        public long zRevRange(String key, long start, long end, ObjDoubleConsumer<String> consumer) {
+            return scoredRange("ZREVRANGE", key, consumer, index(start), index(end), WITHSCORES);
+        }
+
+        /**
+         * 见{@link #zRange(String, long, long, ObjDoubleConsumer)}
+         *
+         * @param key
+         * @param min
+         * @param max
+         * @param consumer
+         * @return 成员数量
+         */
+        public long zRangeByScore(String key, double min, double max, ObjDoubleConsumer<String> consumer) {
+            return scoredRange("ZRANGEBYSCORE", key, consumer, score(min), score(max), WITHSCORES);
+        }
+
+        /**
+         * 在一次Lua调用中取得成员按score从高到低的排名及其前后各radius个成员和score，
+         * 用{@link ScoredRange#getRank(int)}取得每个成员的排名，用{@link ScoredRange#indexOf(String)}找到成员自己
+         *
+         * @param key
+         * @param member
+         * @param radius 前后各取的成员数量
+         * @return 成员不存在时返回空结果
+         */
+        @SuppressWarnings("unchecked")
+        public ScoredRange zRevRangeAround(String key, String member, long radius) {
+            if (Objects.isNull(key) || "".equals(key) || Objects.isNull(member) || radius < 0) {
+                return ScoredRange.empty();
+            }
+            byte[] rawMember = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(member);
+            List<Object> reply = redisTemplate.execute(REV_RANGE_AROUND, RAW, (RedisSerializer<List>) (RedisSerializer<?>) RAW,
+                    Collections.singletonList(key), rawMember, index(radius));
+            if (Objects.isNull(reply) || reply.isEmpty()) {
+                return ScoredRange.empty();
+            }
+            int size = (reply.size() - 1) / 2;
+            String[] members = new String[size];
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                members[i] = member((byte[]) reply.get(2 * i + 1));
+                scores[i] = parseScore((byte[]) reply.get(2 * i + 2));
+            }
+            return new ScoredRange(members, scores, (Long) reply.get(0));
+        }
+
+        private ScoredRange scoredRange(String command, String key, long firstRank, byte[]... args) {
+            List<byte[]> reply = rawScoredRange(command, key, args);
+            if (Objects.isNull(reply) || reply.isEmpty()) {
+                return ScoredRange.empty();
+            }
+            int size = reply.size() / 2;
+            String[] members = new String[size];
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                members[i] = member(reply.get(2 * i));
+                scores[i] = parseScore(reply.get(2 * i + 1));
+            }
+            return new ScoredRange(members, scores, firstRank);
+        }
+
+        private long scoredRange(String command, String key, ObjDoubleConsumer<String> consumer, byte[]... args) {
+            if (Objects.isNull(consumer)) {
+                return 0L;
+            }
+            List<byte[]> reply = rawScoredRange(command, key, args);
+            if (Objects.isNull(reply)) {
+                return 0L;
+            }
+            int size = reply.size() / 2;
+            for (int i = 0; i < size; i++) {
+                consumer.accept(member(reply.get(2 * i)), parseScore(reply.get(2 * i + 1)));
+            }
+            return size;
+        }
+
+        /**
+         * 直接发出原始命令，回复是成员与score交替排列的字节数组，跳过Spring转换为Tuple的过程
+         */
+        @SuppressWarnings("unchecked")
+        private List<byte[]> rawScoredRange(String command, String key, byte[]... args) {
+            if (Objects.isNull(key) || "".equals(key)) {
+                return null;
+            }
+            byte[][] commandArgs = new byte[args.length + 1][];
+            commandArgs[0] = rawKey(key);
+            System.arraycopy(args, 0, commandArgs, 1, args.length);
+            return redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> (List<byte[]>) connection.execute(command, commandArgs));
+        }
+
+        private String member(byte[] raw) {
+            return (String) redisTemplate.getValueSerializer().deserialize(raw);
+        }
+
+        private byte[][] zAddOptions(ZAddFlag[] flags) {
+            if (Objects.isNull(flags) || flags.length == 0) {
+                return new byte[0][];
+            }
+            EnumSet<ZAddFlag> set = EnumSet.noneOf(ZAddFlag.class);
+            set.addAll(Arrays.asList(flags));
+            byte[][] options = new byte[set.size()][];
+            int i = 0;
+            for (ZAddFlag flag : set) {
+                options[i++] = flag.raw;
+            }
+            return options;
+        }
+
         public void zRem(@NotBlank String key, String... members) {
             if (Objects.nonNull(key) && members.length > 0) {
                 redisTemplate.opsForZSet().remove(key, members);
@@ -1046,6 +2801,25 @@ public class RedisUtils {
             return 0L;
         }
 
+        /**
+         * 使用ZSCAN游标惰性遍历有序集合中匹配matchPattern的成员及score，内存中最多只有一批元素，
+         * 可替代zRange(key, 0, -1, true)。提前结束遍历时必须关闭返回的Stream，推荐使用try-with-resources
+         *
+         * @param key
+         * @param matchPattern 成员的匹配模式，为null时匹配全部
+         * @param batchSize    每批返回数量的提示值(COUNT)
+         * @return
+         */
+        public Stream<ScoredMember> zScan(String key, String matchPattern, long batchSize) {
+            if (Objects.isNull(key)) {
+                return Stream.empty();
+            }
+            byte[] rawKey = rawKey(key);
+            ScanOptions options = scanOptions(matchPattern, batchSize);
+            Cursor<RedisZSetCommands.Tuple> cursor = redisTemplate.executeWithStickyConnection(connection -> connection.zScan(rawKey, options));
+            return ScanStreams.of(cursor, tuple -> new ScoredMember((String) redisTemplate.getValueSerializer().deserialize(tuple.getValue()), tuple.getScore()));
+        }
+
         public long zRevRank(@NotBlank String key, String member) {
             if (Objects.nonNull(key)) {
                 Long reverseRank = redisTemplate.opsForZSet().reverseRank(key, member);
@@ -1056,5 +2830,77 @@ public class RedisUtils {
 
     }
 
+    /**
+     * 把成员及score攒成一批批ZADD发到管道中，每{@link #ZADD_PIPELINE_CHUNKS}批读取一次回复
+     */
+    private static final class ZAddWriter implements ObjDoubleConsumer<String> {
+
+        private final RedisConnection connection;
+
+        private final byte[] rawKey;
+
+        private final byte[][] options;
+
+        private final int chunkSize;
+
+        private final RedisSerializer<Object> serializer;
+
+        private byte[][] args;
+
+        private int members;
+
+        private int pendingChunks;
+
+        long total;
+
+        ZAddWriter(RedisConnection connection, byte[] rawKey, byte[][] options, int chunkSize, RedisSerializer<Object> serializer) {
+            this.connection = connection;
+            this.rawKey = rawKey;
+            this.options = options;
+            this.chunkSize = chunkSize;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void accept(String member, double score) {
+            if (Objects.isNull(args)) {
+                args = new byte[1 + options.length + 2 * chunkSize][];
+                args[0] = rawKey;
+                System.arraycopy(options, 0, args, 1, options.length);
+            }
+            int offset = 1 + options.length + 2 * members;
+            args[offset] = score(score);
+            args[offset + 1] = serializer.serialize(member);
+            if (++members == chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * 发出当前未满的一批
+         */
+        void flush() {
+            if (members == 0) {
+                return;
+            }
+            byte[][] command = members == chunkSize ? args : Arrays.copyOf(args, 1 + options.length + 2 * members);
+            connection.execute("ZADD", command);
+            args = null;
+            members = 0;
+            if (++pendingChunks == ZADD_PIPELINE_CHUNKS) {
+                closePipeline();
+                connection.openPipeline();
+            }
+        }
+
+        void closePipeline() {
+            pendingChunks = 0;
+            for (Object result : connection.closePipeline()) {
+                if (result instanceof Long) {
+                    total += (Long) result;
+                }
+            }
+        }
+    }
 
 }
@@ -0,0 +1,109 @@
+package com.iot.xust.redistest.util;
+
+import org.springframework.data.redis.core.Cursor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 15:20 2026/10/18  2026
+ * @Description: 把SCAN系列命令的游标包装成惰性的Stream，任何时刻内存中最多只有一批元素
+ */
+final class ScanStreams {
+
+    private ScanStreams() {
+    }
+
+    /**
+     * 把游标包装成Stream，遍历完或关闭Stream时关闭游标并归还连接。
+     * 提前结束遍历（findFirst、limit等）后必须关闭Stream，推荐使用try-with-resources
+     *
+     * @param cursor
+     * @param mapper 对每个元素做反序列化，只在元素被消费时调用
+     * @param <S>
+     * @param <T>
+     * @return
+     */
+    static <S, T> Stream<T> of(Cursor<S> cursor, Function<? super S, ? extends T> mapper) {
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                if (cursor.isClosed()) {
+                    return false;
+                }
+                if (cursor.hasNext()) {
+                    return true;
+                }
+                close(cursor);
+                return false;
+            }
+
+            @Override
+            public T next() {
+                return mapper.apply(cursor.next());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> close(cursor));
+    }
+
+    /**
+     * 按批过滤：每次从上游取出最多batchSize个元素，调用一次batchFilter（通常是一次管道往返），
+     * 只保留通过过滤的元素
+     *
+     * @param source
+     * @param batchSize
+     * @param batchFilter 返回与入参一一对应的判断结果
+     * @param <T>
+     * @return
+     */
+    static <T> Stream<T> filterInBatches(Stream<T> source, int batchSize, Function<List<T>, List<Boolean>> batchFilter) {
+        Iterator<T> upstream = source.iterator();
+        Iterator<T> iterator = new Iterator<T>() {
+
+            private final Deque<T> ready = new ArrayDeque<>();
+
+            @Override
+            public boolean hasNext() {
+                while (ready.isEmpty() && upstream.hasNext()) {
+                    List<T> batch = new ArrayList<>(batchSize);
+                    while (batch.size() < batchSize && upstream.hasNext()) {
+                        batch.add(upstream.next());
+                    }
+                    List<Boolean> accepted = batchFilter.apply(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (Boolean.TRUE.equals(accepted.get(i))) {
+                            ready.add(batch.get(i));
+                        }
+                    }
+                }
+                return !ready.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return ready.poll();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(source::close);
+    }
+
+    private static void close(Cursor<?> cursor) {
+        try {
+            if (!cursor.isClosed()) {
+                cursor.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
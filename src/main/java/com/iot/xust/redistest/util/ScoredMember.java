@@ -0,0 +1,31 @@
+package com.iot.xust.redistest.util;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 15:48 2026/10/18  2026
+ * @Description: 有序集合中的一个成员及其score，score以基本类型保存
+ */
+public final class ScoredMember {
+
+    private final String member;
+
+    private final double score;
+
+    public ScoredMember(String member, double score) {
+        this.member = member;
+        this.score = score;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return member + "=" + score;
+    }
+}
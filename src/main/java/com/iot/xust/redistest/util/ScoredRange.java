@@ -0,0 +1,88 @@
+package com.iot.xust.redistest.util;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 23:05 2026/10/18  2026
+ * @Description: 有序集合范围查询的结果，成员和score分别保存在两个等长的数组中，按查询的顺序排列，不创建TypedTuple和Double。
+ * members()和scores()直接返回内部数组，不做拷贝
+ */
+public final class ScoredRange {
+
+    private static final ScoredRange EMPTY = new ScoredRange(new String[0], new double[0], -1L);
+
+    private final String[] members;
+
+    private final double[] scores;
+
+    /**
+     * 第一个成员在有序集合中的排名（从0开始），未知时为-1
+     */
+    private final long firstRank;
+
+    ScoredRange(String[] members, double[] scores, long firstRank) {
+        this.members = members;
+        this.scores = scores;
+        this.firstRank = firstRank;
+    }
+
+    static ScoredRange empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    public boolean isEmpty() {
+        return members.length == 0;
+    }
+
+    public String getMember(int index) {
+        return members[index];
+    }
+
+    public double getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * @param index
+     * @return 第index个成员在有序集合中的排名（从0开始），未知时为-1
+     */
+    public long getRank(int index) {
+        return firstRank < 0 ? -1L : firstRank + index;
+    }
+
+    /**
+     * @param member
+     * @return 成员在结果中的位置，不在结果中时为-1
+     */
+    public int indexOf(String member) {
+        for (int i = 0; i < members.length; i++) {
+            if (members[i].equals(member)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String[] members() {
+        return members;
+    }
+
+    public double[] scores() {
+        return scores;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < members.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(members[i]).append('=').append(scores[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
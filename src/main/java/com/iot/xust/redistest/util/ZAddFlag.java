@@ -0,0 +1,33 @@
+package com.iot.xust.redistest.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 23:20 2026/10/18  2026
+ * @Description: ZADD的选项，原样发送给服务端。GT/LT需要Redis 6.2及以上，互相冲突的组合（如NX与XX）由服务端报错
+ */
+public enum ZAddFlag {
+    /**
+     * 只添加新成员，不更新已有成员的score
+     */
+    NX,
+    /**
+     * 只更新已有成员，不添加新成员
+     */
+    XX,
+    /**
+     * 新score大于原score时才更新
+     */
+    GT,
+    /**
+     * 新score小于原score时才更新
+     */
+    LT,
+    /**
+     * 返回值包含score发生变化的成员，而不只是新添加的成员
+     */
+    CH;
+
+    final byte[] raw = name().getBytes(StandardCharsets.US_ASCII);
+}
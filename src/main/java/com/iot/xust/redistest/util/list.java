@@ -26,23 +26,23 @@ public class list {
         return -1L;
     }
 
+    /**
+     * 一次LPUSH把多个value依次入栈，元素过多时按{@link RedisUtils#VALUE_CHUNK_SIZE}分批在一个管道中发送
+     *
+     * @param key
+     * @param value
+     * @return 入栈后list的长度
+     */
     public long lPush(String key, String... value) {
         if (Objects.nonNull(key) && Objects.nonNull(value)) {
-            for (int i = 0; i < value.length; i++) {
-                long l = lPush(key, value[i]);
-                if (-1L == l) {
-                    return -1L;
-                }
-            }
-            return value.length;
+            return RedisUtils.pushAll(redisTemplate, key, value, true);
         }
         return -1L;
     }
 
     public long lPush(String key, Collection<String> value) {
-        if (Objects.nonNull(key)) {
-            Long pushAll = redisTemplate.opsForList().leftPushAll(key, value);
-            return Objects.isNull(pushAll) ? 0L : pushAll;
+        if (Objects.nonNull(key) && Objects.nonNull(value)) {
+            return RedisUtils.pushAll(redisTemplate, key, value.toArray(new String[0]), true);
         }
         return -1L;
     }
@@ -77,15 +77,16 @@ public class list {
     }
 
 
+    /**
+     * 一次RPUSH把多个value依次追加到list尾部，元素过多时按{@link RedisUtils#VALUE_CHUNK_SIZE}分批在一个管道中发送
+     *
+     * @param key
+     * @param value
+     * @return 追加后list的长度
+     */
     public long rPush(String key, String... value) {
         if (Objects.nonNull(key) && Objects.nonNull(value)) {
-            for (int i = 0; i < value.length; i++) {
-                long l = rPush(key, value[i]);
-                if (-1L == l) {
-                    return -1L;
-                }
-            }
-            return value.length;
+            return RedisUtils.pushAll(redisTemplate, key, value, false);
         }
         return -1L;
     }
@@ -182,14 +183,14 @@ public class list {
     }
 
     /**
-     * 获取list下标为index位置的元素
+     * 获取list下标为index位置的元素，只发送一条LINDEX
      *
      * @param key
-     * @param index
-     * @return
+     * @param index 负数表示从尾部倒数
+     * @return 下标越界或key不存在时为null
      */
     public String lIndex(String key, long index) {
-        if (Objects.isNull(key) || Math.abs(index) > llen(key)) {
+        if (Objects.isNull(key)) {
             return null;
         }
         return redisTemplate.opsForList().index(key, index);
@@ -219,14 +220,15 @@ public class list {
     }
 
     /**
-     * 将列表 key 下标为 index 的元素的值设值为 value 。
+     * 将列表 key 下标为 index 的元素的值设值为 value ，只发送一条LSET。
+     * 下标越界或key不存在时由服务端返回错误，以 {@link org.springframework.dao.DataAccessException} 抛出
      *
      * @param key
      * @param index
      * @param value
      */
     public void lSet(String key, long index, String value) {
-        if (Objects.isNull(key) || (index > 0 && index >= llen(key)) || (index < 0 && Math.abs(index) >= llen(key) + 1)) {
+        if (Objects.isNull(key)) {
             return;
         }
         redisTemplate.opsForList().set(key, index, value);
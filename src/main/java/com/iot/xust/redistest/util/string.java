@@ -64,16 +64,42 @@ public class string {
     }
 
 
+    /**
+     * 一条 SET key value NX|XX EX|PX timeout 命令完成条件写入和过期时间，不存在写入后还没有过期时间的间隙
+     *
+     * @param key
+     * @param value
+     * @param command     ex表示秒，px表示毫秒，为null时不设置过期时间
+     * @param timout
+     * @param isKeyAbsent true表示nx   false表示xx
+     * @return 是否真正写入
+     */
     public boolean set(String key, String value, String command, long timout, boolean isKeyAbsent) {
-        if (Objects.nonNull(command)) {
-            boolean res = this.set(key, value, isKeyAbsent);
-            if (res) {
-                return this.set(key, key, command, timout);
-            }
-        } else if (Objects.nonNull(isKeyAbsent)) {
+        if (Objects.isNull(command)) {
             return this.set(key, value, isKeyAbsent);
         }
-        return false;
+        TimeUnit unit = timeUnit(command);
+        if (Objects.isNull(key) || Objects.isNull(value) || Objects.isNull(unit) || timout <= 0) {
+            return false;
+        }
+        Boolean res;
+        if (isKeyAbsent) {
+            res = redisTemplate.opsForValue().setIfAbsent(key, value, timout, unit);
+        } else {
+            res = redisTemplate.opsForValue().setIfPresent(key, value, timout, unit);
+        }
+        return Boolean.TRUE.equals(res);
+    }
+
+    private TimeUnit timeUnit(String command) {
+        switch (command.toLowerCase()) {
+            case "ex":
+                return TimeUnit.SECONDS;
+            case "px":
+                return TimeUnit.MILLISECONDS;
+            default:
+                return null;
+        }
     }
 
     /**
@@ -0,0 +1,130 @@
+package com.iot.xust.redistest.codec;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:10 2026/10/18  2026
+ * @Description: BinaryValueCodec的类型标记、最外层字符串的TEXT头部和旧json格式的兼容读取
+ */
+public class BinaryValueCodecTest {
+
+    private final BinaryValueCodec codec = new BinaryValueCodec(new JacksonValueCodec(), Collections.singletonList("com.iot.xust.redistest"));
+
+    @Test
+    public void plainStringIsWrittenAsIs() {
+        assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), codec.encode("hello"));
+        assertArrayEquals(new byte[0], codec.encode(""));
+        assertEquals("héllo", codec.decode(codec.encode("héllo")));
+        assertEquals("", codec.decode(new byte[0]));
+    }
+
+    @Test
+    public void stringLookingLikeJsonOrTagGetsTextHeader() {
+        for (String s : Arrays.asList("[1]", "{\"a\":1}", "\"quoted\"", "\u0001control", "\u000Ftail")) {
+            byte[] bytes = codec.encode(s);
+            assertEquals(BinaryValueCodec.TEXT, bytes[0]);
+            assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), Arrays.copyOfRange(bytes, 1, bytes.length));
+            assertEquals(s, codec.decode(bytes));
+        }
+    }
+
+    @Test
+    public void textHeaderSurvivesAppend() {
+        byte[] bytes = codec.encode("[a");
+        byte[] appended = Arrays.copyOf(bytes, bytes.length + 2);
+        appended[bytes.length] = 'b';
+        appended[bytes.length + 1] = ']';
+        assertEquals("[ab]", codec.decode(appended));
+    }
+
+    @Test
+    public void topLevelNumbersAreWrittenAsText() {
+        //INCR/INCRBY可以直接作用于写入的数字
+        assertArrayEquals("-5".getBytes(StandardCharsets.US_ASCII), codec.encode(-5L));
+        assertArrayEquals("1.5".getBytes(StandardCharsets.US_ASCII), codec.encode(1.5));
+        assertEquals("7", codec.decode(codec.encode(7)));
+    }
+
+    @Test
+    public void scalarsUseTheirTags() {
+        assertEquals(BinaryValueCodec.TRUE, codec.encode(true)[0]);
+        assertEquals(BinaryValueCodec.FALSE, codec.encode(false)[0]);
+        assertEquals(BinaryValueCodec.BYTES, codec.encode(new byte[]{1})[0]);
+        assertEquals(BinaryValueCodec.NULL, codec.encode(null)[0]);
+        //集合中的元素带有各自的类型标记：[LIST][数量][标记]...
+        assertEquals(BinaryValueCodec.LONG, codec.encode(Collections.singletonList(-5L))[2]);
+        assertEquals(BinaryValueCodec.INT, codec.encode(Collections.singletonList(7))[2]);
+        assertEquals(BinaryValueCodec.DOUBLE, codec.encode(Collections.singletonList(1.5))[2]);
+        assertEquals(BinaryValueCodec.STRING, codec.encode(Collections.singletonList("s"))[2]);
+
+        List<Object> scalars = Arrays.asList(-5L, Long.MIN_VALUE, 7, 1.5, "s", true, false, null);
+        assertEquals(scalars, codec.decode(codec.encode(scalars)));
+        assertEquals(Boolean.TRUE, codec.decode(codec.encode(true)));
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) codec.decode(codec.encode(new byte[]{1, 2})));
+        assertNull(codec.decode(codec.encode(null)));
+    }
+
+    @Test
+    public void collectionsRoundTrip() {
+        List<Object> list = Arrays.asList("a", 1L, null, "[nested", Arrays.asList(2, 3.0));
+        assertEquals(BinaryValueCodec.LIST, codec.encode(list)[0]);
+        assertEquals(list, codec.decode(codec.encode(list)));
+
+        Set<Object> set = new LinkedHashSet<>(Arrays.asList("x", "y"));
+        assertEquals(BinaryValueCodec.SET, codec.encode(set)[0]);
+        assertEquals(set, codec.decode(codec.encode(set)));
+
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("k", Collections.singletonMap("inner", false));
+        map.put(1, "v");
+        assertEquals(BinaryValueCodec.MAP, codec.encode(map)[0]);
+        assertEquals(map, codec.decode(codec.encode(map)));
+    }
+
+    @Test
+    public void trustedObjectRoundTrips() {
+        Point point = new Point();
+        point.x = 3;
+        point.name = "p";
+        byte[] bytes = codec.encode(point);
+        assertEquals(BinaryValueCodec.OBJECT, bytes[0]);
+        Point decoded = (Point) codec.decode(bytes);
+        assertEquals(3, decoded.x);
+        assertEquals("p", decoded.name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void untrustedObjectIsNotEncoded() {
+        new BinaryValueCodec(null).encode(new Point());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void untrustedClassNameIsNotDecoded() {
+        byte[] bytes = codec.encode(new Point());
+        new BinaryValueCodec(null).decode(bytes);
+    }
+
+    @Test
+    public void readsLegacyJson() {
+        JacksonValueCodec json = new JacksonValueCodec();
+        List<Object> list = new ArrayList<>(Arrays.asList("a", 1L));
+        assertEquals(list, codec.decode(json.encode(list)));
+        assertEquals("legacy", codec.decode(json.encode("legacy")));
+        //不是合法JSON的内容当作原样的字符串
+        assertEquals("[not json", codec.decode("[not json".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("\"quoted\"", new BinaryValueCodec(null).decode("\"quoted\"".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static class Point {
+
+        public int x;
+
+        public String name;
+    }
+}
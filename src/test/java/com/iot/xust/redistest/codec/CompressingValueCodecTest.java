@@ -0,0 +1,77 @@
+package com.iot.xust.redistest.codec;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:25 2026/10/18  2026
+ * @Description: 压缩头部[0x0F][算法][varint原始长度]以及阈值、算法切换后的读取
+ */
+public class CompressingValueCodecTest {
+
+    private final BinaryValueCodec binary = new BinaryValueCodec(null, Collections.emptyList());
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void valuesUnderThresholdAreUntouched() {
+        CompressingValueCodec codec = new CompressingValueCodec(binary, CompressingValueCodec.Algorithm.LZ4, 1024);
+        String value = repeat("ab", 100);
+        assertArrayEquals(binary.encode(value), codec.encode(value));
+        assertEquals(value, codec.decode(codec.encode(value)));
+    }
+
+    @Test
+    public void headerRecordsAlgorithmAndOriginalLength() {
+        for (CompressingValueCodec.Algorithm algorithm : CompressingValueCodec.Algorithm.values()) {
+            CompressingValueCodec codec = new CompressingValueCodec(binary, algorithm, 1024);
+            String value = repeat("ab", 1000);
+            byte[] bytes = codec.encode(value);
+            assertEquals(CompressingValueCodec.MAGIC, bytes[0]);
+            assertEquals(algorithm, CompressingValueCodec.Algorithm.of(bytes[1]));
+            //2000 = 0xD0 | 0x80, 0x0F
+            assertEquals((byte) 0xD0, bytes[2]);
+            assertEquals((byte) 0x0F, bytes[3]);
+            assertTrue(bytes.length < 2000);
+            assertEquals(value, codec.decode(bytes));
+        }
+    }
+
+    @Test
+    public void oldDataIsReadableAfterSwitchingAlgorithm() {
+        String value = repeat("xyz", 1000);
+        byte[] deflated = new CompressingValueCodec(binary, CompressingValueCodec.Algorithm.DEFLATE, 16).encode(value);
+        CompressingValueCodec lz4 = new CompressingValueCodec(binary, CompressingValueCodec.Algorithm.LZ4, 16);
+        assertEquals(value, lz4.decode(deflated));
+        assertEquals(1L, lz4.getStats().getDecompressedCount());
+    }
+
+    @Test
+    public void incompressibleValuesAreStoredRaw() {
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        CompressingValueCodec codec = new CompressingValueCodec(binary, CompressingValueCodec.Algorithm.LZ4, 1024);
+        byte[] bytes = codec.encode(random);
+        assertEquals(BinaryValueCodec.BYTES, bytes[0]);
+        assertArrayEquals(random, (byte[]) codec.decode(bytes));
+        assertEquals(1L, codec.getStats().getSkippedCount());
+    }
+
+    @Test
+    public void uncompressedTaggedValuesPassThrough() {
+        CompressingValueCodec codec = new CompressingValueCodec(binary, CompressingValueCodec.Algorithm.LZ4, 1024);
+        assertEquals("[x", codec.decode(binary.encode("[x")));
+        assertEquals(Collections.singletonList(42L), codec.decode(binary.encode(Collections.singletonList(42L))));
+    }
+}
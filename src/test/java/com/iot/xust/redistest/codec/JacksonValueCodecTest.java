@@ -0,0 +1,55 @@
+package com.iot.xust.redistest.codec;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:35 2026/10/18  2026
+ * @Description: 旧Jackson格式的类名校验，以及redis.codec=json时同时读取binary格式
+ */
+public class JacksonValueCodecTest {
+
+    private final JacksonValueCodec json = new JacksonValueCodec(Collections.singletonList("com.iot.xust.redistest"));
+
+    @Test
+    public void jdkAndTrustedTypesRoundTrip() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("list", new ArrayList<>(Arrays.asList(1L, "s")));
+        map.put("date", new Date(0));
+        assertEquals(map, json.decode(json.encode(map)));
+        assertEquals(new BigDecimal("1.5"), json.decode(json.encode(new BigDecimal("1.5"))));
+
+        BinaryValueCodecTest.Point point = new BinaryValueCodecTest.Point();
+        point.x = 1;
+        assertEquals(1, ((BinaryValueCodecTest.Point) json.decode(json.encode(point))).x);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void untrustedClassIdIsRejected() {
+        json.decode("[\"java.net.URL\",\"http://example.com\"]".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void trustedPackagesAreOptIn() {
+        new JacksonValueCodec().decode(json.encode(new BinaryValueCodecTest.Point()));
+    }
+
+    @Test
+    public void dualReadWritesJsonAndReadsBinary() {
+        BinaryValueCodec binary = new BinaryValueCodec(json, Collections.singletonList("com.iot.xust.redistest"));
+        DualReadValueCodec codec = new DualReadValueCodec(json, binary);
+        List<Object> list = new ArrayList<>(Arrays.asList(1L, "s"));
+        assertArrayEquals(json.encode(list), codec.encode(list));
+        assertEquals(list, codec.decode(json.encode(list)));
+        assertEquals(list, codec.decode(binary.encode(list)));
+        assertEquals("[x", codec.decode(binary.encode("[x")));
+        assertEquals("plain", codec.decode(binary.encode("plain")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.iot.xust.redistest.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 19:20 2026/10/18  2026
+ * @Description: 写入后合并进本地快照的名次与服务端ZREVRANGE的结果一致，同分成员按编码后的字节排序
+ */
+public class LeaderboardTest {
+
+    private static final String KEY = "redis-utils-test:leaderboard";
+
+    private RedisTestSupport support;
+
+    private RedisUtils redisUtils;
+
+    private Leaderboard leaderboard;
+
+    @Before
+    public void setUp() {
+        support = new RedisTestSupport("binary", false, 1024);
+        redisUtils = support.redisUtils();
+        redisUtils.del(KEY);
+    }
+
+    @After
+    public void tearDown() {
+        if (leaderboard != null) {
+            leaderboard.close();
+        }
+        if (support != null) {
+            redisUtils.del(KEY);
+            support.close();
+        }
+    }
+
+    private void assertMatchesServer(int n) {
+        ScoredRange local = leaderboard.top(n);
+        ScoredRange server = redisUtils.zset.zRevRangeWithScores(KEY, 0, n - 1);
+        assertEquals(Arrays.asList(server.members()), Arrays.asList(local.members()));
+        assertArrayEquals(server.scores(), local.scores(), 0.0);
+    }
+
+    @Test
+    public void mergedTiesFollowEncodedBytes() {
+        leaderboard = new Leaderboard(redisUtils, KEY, 10, 60000, 60000, 100);
+        leaderboard.submit("b", 5);
+        leaderboard.submit("z", 1);
+        leaderboard.flush();
+        assertMatchesServer(10);
+        long refreshes = leaderboard.refreshCount();
+
+        //"[a"带TEXT头部，编码后排在所有原样字符串之前；"é"的UTF-8大于ASCII；"B" < "a" < "b"
+        leaderboard.submit("[a", 5);
+        leaderboard.submit("é", 5);
+        leaderboard.submit("a", 5);
+        leaderboard.submit("B", 5);
+        leaderboard.submit("z", 5);
+        leaderboard.flush();
+        assertMatchesServer(10);
+        assertEquals("合并后不应重新读取", refreshes, leaderboard.refreshCount());
+    }
+
+    @Test
+    public void fullSnapshotWithNewFloorTieIsReloaded() {
+        leaderboard = new Leaderboard(redisUtils, KEY, 2, 60000, 60000, 100);
+        leaderboard.submit("a", 3);
+        leaderboard.submit("b", 2);
+        leaderboard.submit("c", 2);
+        leaderboard.flush();
+        assertMatchesServer(2);
+
+        //与最后一名同分的新成员和快照之外的"c"谁在前只有服务端知道
+        leaderboard.submit("d", 2);
+        leaderboard.flush();
+        assertMatchesServer(2);
+    }
+}
@@ -0,0 +1,115 @@
+package com.iot.xust.redistest.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:45 2026/10/18  2026
+ * @Description: 加载期间发生失效时不把旧值放入缓存
+ */
+public class NearCacheTest {
+
+    @Test
+    public void putWithCurrentStampIsCached() {
+        NearCache cache = new NearCache(100, 60000);
+        cache.put("k", "v", cache.stamp("k"));
+        cache.put("h", "f", "fv", cache.stamp("h"));
+        assertEquals("v", cache.get("k"));
+        assertEquals("fv", cache.get("h", "f"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void invalidationDuringLoadDiscardsValue() {
+        NearCache cache = new NearCache(100, 60000);
+        long stamp = cache.stamp("k");
+        cache.invalidate("k");
+        cache.put("k", "stale", stamp);
+        cache.put("k", "f", "stale", stamp);
+        assertNull(cache.get("k"));
+        assertNull(cache.get("k", "f"));
+        assertEquals(0, cache.size());
+
+        cache.put("k", "fresh", cache.stamp("k"));
+        assertEquals("fresh", cache.get("k"));
+    }
+
+    @Test
+    public void invalidateAllDiscardsLoadsInFlight() {
+        NearCache cache = new NearCache(100, 60000);
+        long stamp = cache.stamp("k");
+        cache.invalidateAll();
+        cache.put("k", "stale", stamp);
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    public void invalidationOfOtherKeyDoesNotBlockAdmission() {
+        NearCache cache = new NearCache(100, 60000);
+        String other = null;
+        for (int i = 0; other == null; i++) {
+            String candidate = "other" + i;
+            long before = cache.stamp("k");
+            cache.invalidate(candidate);
+            if (cache.stamp("k") == before) {
+                other = candidate;
+            }
+        }
+        long stamp = cache.stamp("k");
+        cache.invalidate(other);
+        cache.put("k", "v", stamp);
+        assertEquals("v", cache.get("k"));
+    }
+
+    /**
+     * 写线程先改值再失效，读线程先取版本号再读值再放入；无论怎样交错，结束时缓存中只能是最新值或没有值
+     */
+    @Test
+    public void concurrentLoadsNeverLeaveStaleValue() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            NearCache cache = new NearCache(100, 60000);
+            AtomicInteger redis = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread writer = new Thread(() -> {
+                await(start);
+                for (int i = 1; i <= 2000; i++) {
+                    redis.set(i);
+                    cache.invalidate("k");
+                }
+            });
+            Thread[] readers = new Thread[3];
+            for (int t = 0; t < readers.length; t++) {
+                readers[t] = new Thread(() -> {
+                    await(start);
+                    for (int i = 0; i < 2000; i++) {
+                        long stamp = cache.stamp("k");
+                        String value = String.valueOf(redis.get());
+                        cache.put("k", value, stamp);
+                    }
+                });
+                readers[t].start();
+            }
+            writer.start();
+            start.countDown();
+            writer.join();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            String cached = cache.get("k");
+            assertTrue("缓存中留下了旧值 " + cached, cached == null || cached.equals(String.valueOf(redis.get())));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.iot.xust.redistest.util;
+
+import com.iot.xust.redistest.codec.ValueCodec;
+import com.iot.xust.redistest.config.RedisConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assume;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 18:55 2026/10/18  2026
+ * @Description: 需要真实Redis的测试使用的Spring上下文，按RedisConfig的方式装配编解码和redisTemplate。
+ * 脚本相关的功能无法用benchmarks中的RespServer替身验证，连接地址取自系统属性redis.test.host和redis.test.port
+ * （默认127.0.0.1:6379），连不上时跳过测试，例如 mvn test -Dredis.test.port=6380
+ */
+final class RedisTestSupport implements Closeable {
+
+    private static final String HOST = System.getProperty("redis.test.host", "127.0.0.1");
+
+    private static final int PORT = Integer.getInteger("redis.test.port", 6379);
+
+    private final AnnotationConfigApplicationContext context;
+
+    /**
+     * @param codec       binary 或 json
+     * @param compression 是否对超过threshold字节的值做lz4压缩
+     * @param threshold   压缩阈值
+     */
+    RedisTestSupport(String codec, boolean compression, int threshold) {
+        assumeRedis();
+        this.context = new AnnotationConfigApplicationContext();
+        RedisConfig config = new RedisConfig();
+        context.registerBean(LettuceConnectionFactory.class,
+                () -> new LettuceConnectionFactory(new RedisStandaloneConfiguration(HOST, PORT)));
+        context.registerBean(ValueCodec.class,
+                () -> config.valueCodec(codec, new String[]{"com.iot.xust.redistest"}, compression, "lz4", threshold));
+        context.registerBean("redisTemplate", RedisTemplate.class,
+                () -> config.redisTemplate(context.getBean(RedisConnectionFactory.class), context.getBean(ValueCodec.class),
+                        context.getBeanProvider(MeterRegistry.class), false, false, 0));
+        context.registerBean(RedisUtils.class);
+        context.refresh();
+    }
+
+    private static void assumeRedis() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(HOST, PORT), 500);
+        } catch (IOException e) {
+            Assume.assumeNoException("没有可用的Redis " + HOST + ":" + PORT, e);
+        }
+    }
+
+    static String redisUri() {
+        return "redis://" + HOST + ":" + PORT;
+    }
+
+    RedisUtils redisUtils() {
+        return context.getBean(RedisUtils.class);
+    }
+
+    ValueCodec valueCodec() {
+        return context.getBean(ValueCodec.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
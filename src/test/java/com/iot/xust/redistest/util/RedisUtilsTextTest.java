@@ -0,0 +1,128 @@
+package com.iot.xust.redistest.util;
+
+import io.lettuce.core.RedisClient;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @Author: HuangXin
+ * @Date: Created in 19:05 2026/10/18  2026
+ * @Description: string.append/getRange/setRange/strlen的TEXT_*脚本在原样字符串、带TEXT头部的字符串和压缩的值上的行为
+ */
+public class RedisUtilsTextTest {
+
+    private static final String KEY = "redis-utils-test:text";
+
+    private RedisTestSupport support;
+
+    @After
+    public void tearDown() {
+        if (support != null) {
+            support.redisUtils().del(KEY);
+            support.close();
+        }
+    }
+
+    private RedisUtils open(boolean compression) {
+        support = new RedisTestSupport("binary", compression, 64);
+        RedisUtils redisUtils = support.redisUtils();
+        redisUtils.del(KEY);
+        return redisUtils;
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void plainString() {
+        RedisUtils redisUtils = open(false);
+        redisUtils.string.set(KEY, "héllo");
+        assertEquals(6L, redisUtils.string.strlen(KEY));
+        assertEquals("hé", redisUtils.string.getRange(KEY, 0, 2));
+        assertEquals("llo", redisUtils.string.getRange(KEY, -3, -1));
+        assertEquals(7L, redisUtils.string.append(KEY, "!"));
+        redisUtils.string.setRange(KEY, 0, "J");
+        assertEquals("Jéllo!", redisUtils.string.get(KEY));
+    }
+
+    @Test
+    public void taggedStringSkipsHeader() {
+        RedisUtils redisUtils = open(false);
+        redisUtils.string.set(KEY, "[abc");
+        assertEquals(4L, redisUtils.string.strlen(KEY));
+        assertEquals("[", redisUtils.string.getRange(KEY, 0, 0));
+        assertEquals("abc", redisUtils.string.getRange(KEY, 1, -1));
+        assertEquals(5L, redisUtils.string.append(KEY, "]"));
+        redisUtils.string.setRange(KEY, 1, "X");
+        assertEquals("[Xbc]", redisUtils.string.get(KEY));
+    }
+
+    @Test
+    public void setRangeAddsHeaderAndKeepsTtl() {
+        RedisUtils redisUtils = open(false);
+        redisUtils.string.set(KEY, "abc", "ex", 100);
+        redisUtils.string.setRange(KEY, 0, "{");
+        assertEquals("{bc", redisUtils.string.get(KEY));
+        assertEquals(3L, redisUtils.string.strlen(KEY));
+        assertTrue(redisUtils.ttl(KEY) > 0);
+    }
+
+    @Test
+    public void missingKeyIsWrittenLikeSet() {
+        RedisUtils redisUtils = open(false);
+        assertEquals(2L, redisUtils.string.append(KEY, "[x"));
+        assertEquals("[x", redisUtils.string.get(KEY));
+        redisUtils.del(KEY);
+        redisUtils.string.setRange(KEY, 0, "{y");
+        assertEquals("{y", redisUtils.string.get(KEY));
+    }
+
+    @Test
+    public void compressedValueIsRejectedUnchanged() {
+        RedisUtils redisUtils = open(true);
+        String value = repeat("ab", 100);
+        redisUtils.string.set(KEY, value);
+        assertNotPlainString(() -> redisUtils.string.strlen(KEY));
+        assertNotPlainString(() -> redisUtils.string.getRange(KEY, 0, 1));
+        assertNotPlainString(() -> redisUtils.string.append(KEY, "x"));
+        assertNotPlainString(() -> redisUtils.string.setRange(KEY, 0, "x"));
+        assertEquals(value, redisUtils.string.get(KEY));
+    }
+
+    @Test
+    public void asyncUsesSameScripts() throws Exception {
+        RedisUtils redisUtils = open(false);
+        RedisClient client = RedisClient.create(RedisTestSupport.redisUri());
+        AsyncRedisUtils async = new AsyncRedisUtils(client, support.valueCodec(), null, 1);
+        try {
+            redisUtils.string.set(KEY, "[ab");
+            assertEquals(Long.valueOf(3L), async.string.strlen(KEY).get());
+            assertEquals("ab", async.string.getRange(KEY, 1, 2).get());
+            assertEquals(Long.valueOf(4L), async.string.append(KEY, "]").get());
+            assertEquals("[ab]", redisUtils.string.get(KEY));
+        } finally {
+            async.close();
+            client.shutdown();
+        }
+    }
+
+    private static void assertNotPlainString(Runnable operation) {
+        try {
+            operation.run();
+            fail("压缩的值不应支持按字节操作");
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause.getCause() != null && !String.valueOf(cause.getMessage()).contains("not a plain string")) {
+                cause = cause.getCause();
+            }
+            assertTrue(String.valueOf(e), String.valueOf(cause.getMessage()).contains("not a plain string"));
+        }
+    }
+}